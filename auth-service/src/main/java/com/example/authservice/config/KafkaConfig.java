@@ -14,6 +14,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
@@ -124,4 +125,22 @@ public class KafkaConfig {
         factory.setConsumerFactory(userEventConsumerFactory());
         return factory;
     }
+
+    /**
+     * Listener topic định danh người dùng: luôn đọc lại từ đầu, không commit offset
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> userIdentityKafkaListenerContainerFactory() {
+        Map<String, Object> props = new HashMap<>(userEventConsumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Phát ListenerContainerIdleEvent khi đã đọc hết topic để chỉ mục biết mình đã bắt kịp
+        factory.getContainerProperties().setIdleEventInterval(2000L);
+        return factory;
+    }
 }
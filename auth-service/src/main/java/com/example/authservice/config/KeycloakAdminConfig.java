@@ -0,0 +1,44 @@
+package com.example.authservice.config;
+
+import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một admin client Keycloak dùng chung cho cả ứng dụng.
+ * Client giữ pool kết nối HTTP và tự làm mới admin token (TokenManager), nên không cần
+ * đăng nhập lại admin ở mỗi lời gọi.
+ */
+@Configuration
+public class KeycloakAdminConfig {
+
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloakAdmin(
+            @Value("${keycloak.auth-server-url}") String serverUrl,
+            @Value("${keycloak.admin.username}") String adminUsername,
+            @Value("${keycloak.admin.password}") String adminPassword,
+            @Value("${keycloak.admin.clientId}") String adminClientId,
+            @Value("${keycloak.admin.pool-size:20}") int poolSize,
+            @Value("${keycloak.admin.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${keycloak.admin.read-timeout-ms:5000}") long readTimeoutMs) {
+        ResteasyClientBuilderImpl clientBuilder = new ResteasyClientBuilderImpl();
+        clientBuilder.connectionPoolSize(poolSize)
+                .maxPooledPerRoute(poolSize)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS);
+
+        return KeycloakBuilder.builder()
+                .serverUrl(serverUrl)
+                .realm("master")
+                .username(adminUsername)
+                .password(adminPassword)
+                .clientId(adminClientId)
+                .resteasyClient(clientBuilder.build())
+                .build();
+    }
+}
@@ -38,7 +38,8 @@ public class SecurityConfig{
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/register", "/login", "/forgot-password",
-                                "/google-login-url", "/google-redirect", "/refresh**", "/logout-user**").permitAll()
+                                "/google-login-url", "/google-redirect", "/refresh**", "/logout-user**",
+                                "/actuator/health", "/actuator/health/**").permitAll()
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())));
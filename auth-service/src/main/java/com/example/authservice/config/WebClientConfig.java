@@ -0,0 +1,45 @@
+package com.example.authservice.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * WebClient dùng chung cho các endpoint OpenID Connect của Keycloak (token, logout, userinfo).
+ * Kết nối được giữ trong pool thay vì tạo client mới ở mỗi request.
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Bean
+    public WebClient keycloakWebClient(
+            WebClient.Builder webClientBuilder,
+            @Value("${keycloak.auth-server-url}") String authServerUrl,
+            @Value("${keycloak.realm}") String realm,
+            @Value("${keycloak.oidc.max-connections:500}") int maxConnections,
+            @Value("${keycloak.oidc.pending-acquire-timeout-ms:2000}") long pendingAcquireTimeoutMs,
+            @Value("${keycloak.oidc.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${keycloak.oidc.response-timeout-ms:5000}") long responseTimeoutMs) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("keycloak-oidc")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
+        return webClientBuilder
+                .baseUrl(authServerUrl + "/realms/" + realm + "/protocol/openid-connect")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -31,13 +31,15 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuthService {
     private final KeycloakService keycloakService;
-    private final WebClient.Builder webClientBuilder;
+    private final UserIdentityIndex userIdentityIndex;
+    private final WebClient keycloakWebClient;
     private final KafkaTemplate<String, UserEventDTO> CreateKafkaTemplate;
     private final KafkaTemplate<String, LoginEventDTO> LoginKafkaTemplate;
     private final KafkaTemplate<String, EmailVerificationRequestDTO> emailVerificationKafkaTemplate;
@@ -104,7 +106,7 @@ public class AuthService {
 
     public ResponseEntity<?> loginUser(LoginRequestDTO request) {
         //check email already exists
-        if (!keycloakService.isEmailExist(request.getEmail())) {
+        if (!userIdentityIndex.containsEmail(request.getEmail()) && !keycloakService.isEmailExist(request.getEmail())) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Email chưa được đăng ký");
         }
 
@@ -115,17 +117,8 @@ public class AuthService {
         map.add("username", request.getEmail());
         map.add("password", request.getPassword());
 
-        String tokenUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/token";
-
         try {
-            TokenResponseDTO tokenResponseDTO = webClientBuilder.build()
-                    .post()
-                    .uri(tokenUrl)
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-                    .bodyValue(map)
-                    .retrieve()
-                    .bodyToMono(TokenResponseDTO.class)
-                    .block();
+            TokenResponseDTO tokenResponseDTO = requestToken(map);
 
             if (tokenResponseDTO != null) {
                 String keycloakId = extractSubjectFromToken(tokenResponseDTO.getAccessToken());
@@ -150,6 +143,16 @@ public class AuthService {
         }
     }
 
+    private TokenResponseDTO requestToken(MultiValueMap<String, String> form) {
+        return keycloakWebClient.post()
+                .uri("/token")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                .bodyValue(form)
+                .retrieve()
+                .bodyToMono(TokenResponseDTO.class)
+                .block();
+    }
+
     private String extractSubjectFromToken(String token) {
         // Basic JWT token parsing to extract subject claim
         String payload = token.split("\\.")[1];
@@ -168,12 +171,9 @@ public class AuthService {
         map.add("client_secret", clientSecret);
         map.add("refresh_token", refreshToken);
 
-        String logoutUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/logout";
-
         try {
-            webClientBuilder.build()
-                    .post()
-                    .uri(logoutUrl)
+            keycloakWebClient.post()
+                    .uri("/logout")
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
                     .bodyValue(map)
                     .retrieve()
@@ -212,17 +212,8 @@ public class AuthService {
         map.add("grant_type", "refresh_token");
         map.add("refresh_token", refreshToken);
 
-        String tokenUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/token";
-
         try {
-            TokenResponseDTO tokenResponseDTO = webClientBuilder.build()
-                    .post()
-                    .uri(tokenUrl)
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-                    .bodyValue(map)
-                    .retrieve()
-                    .bodyToMono(TokenResponseDTO.class)
-                    .block();
+            TokenResponseDTO tokenResponseDTO = requestToken(map);
 
             if (tokenResponseDTO != null) {
                 return ResponseEntity.ok(tokenResponseDTO);
@@ -259,17 +250,8 @@ public class AuthService {
         map.add("grant_type", "authorization_code");
         map.add("code", code);
         map.add("redirect_uri", redirectUri);
-
-        String tokenUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/token";
         try {
-            TokenResponseDTO tokenResponseDTO = webClientBuilder.build()
-                    .post()
-                    .uri(tokenUrl)
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-                    .bodyValue(map)
-                    .retrieve()
-                    .bodyToMono(TokenResponseDTO.class)
-                    .block();
+            TokenResponseDTO tokenResponseDTO = requestToken(map);
 
             if (tokenResponseDTO != null) {
                 String keycloakId = extractSubjectFromToken(tokenResponseDTO.getAccessToken());
@@ -292,26 +274,28 @@ public class AuthService {
                         }
                     }
                 }
-                boolean existsInUserService = checkEmailExistsInUserService(email).get(5, TimeUnit.SECONDS);
-
-                if (existsInUserService) {
-                    log.info("Email {} tồn tại trong user-service", email);
-                } else {
-                    log.info("Người dùng mới với email {} chưa tồn tại, tạo mới tài khoản", email);
-                    // Create new user in both systems
-                    UserEventDTO userEvent = UserEventDTO.builder()
-                            .keycloakId(keycloakId)
-                            .email(email)
-                            .firstName((String) userInfo.getOrDefault("given_name", ""))
-                            .lastName((String) userInfo.getOrDefault("family_name", ""))
-                            .isProfileComplete(false)
-                            .provider("google")
-                            .build();
-
-                    CreateKafkaTemplate.send(userCreationTopic, email, userEvent);
+                // Chỉ mục cục bộ trả lời ngay; chỉ khi chỉ mục chưa nạp xong mới hỏi user-service qua Kafka
+                UserInfo googleUser = new UserInfo(keycloakId, email,
+                        (String) userInfo.getOrDefault("given_name", ""),
+                        (String) userInfo.getOrDefault("family_name", ""));
+                switch (userIdentityIndex.lookupEmail(email)) {
+                    case PRESENT -> log.info("Email {} tồn tại trong user-service", email);
+                    case ABSENT -> publishGoogleUserCreation(googleUser);
+                    case UNKNOWN -> checkEmailExistsInUserService(email).thenAccept(existsInUserService -> {
+                        if (existsInUserService) {
+                            log.info("Email {} tồn tại trong user-service", email);
+                        } else {
+                            publishGoogleUserCreation(googleUser);
+                        }
+                    }).exceptionally(ex -> {
+                        // Không rõ user đã có hay chưa (kể cả khi hết thời gian chờ): không tạo user,
+                        // lần đăng nhập Google sau sẽ kiểm tra lại
+                        log.error("Không thể kiểm tra email {} trong user-service, bỏ qua việc tạo user: {}",
+                                email, ex.getMessage());
+                        return null;
+                    });
                 }
 
-
                 // Ghi nhận sự kiện đăng nhập qua Kafka
                 LoginEventDTO loginEvent = LoginEventDTO.builder()
                         .keycloakId(keycloakId)
@@ -336,13 +320,30 @@ public class AuthService {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Lỗi xử lý đăng nhập Google");
         }
     }
+    private record UserInfo(String keycloakId, String email, String firstName, String lastName) {
+    }
+
+    private void publishGoogleUserCreation(UserInfo googleUser) {
+        log.info("Người dùng mới với email {} chưa tồn tại, tạo mới tài khoản", googleUser.email());
+        // Create new user in both systems
+        UserEventDTO userEvent = UserEventDTO.builder()
+                .keycloakId(googleUser.keycloakId())
+                .email(googleUser.email())
+                .firstName(googleUser.firstName())
+                .lastName(googleUser.lastName())
+                .isProfileComplete(false)
+                .provider("google")
+                .build();
+
+        CreateKafkaTemplate.send(userCreationTopic, googleUser.email(), userEvent);
+        // Ghi nhận ngay để lần đăng nhập kế tiếp không gửi trùng sự kiện tạo user
+        userIdentityIndex.register(googleUser.keycloakId(), googleUser.email(), null);
+    }
+
     // Phương thức để kiểm tra thông tin người dùng từ token
     private Map<String, Object> getUserInfoFromToken(String accessToken) {
-        String userInfoUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/userinfo";
-
-        return webClientBuilder.build()
-                .get()
-                .uri(userInfoUrl)
+        return keycloakWebClient.get()
+                .uri("/userinfo")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
@@ -395,7 +396,8 @@ public class AuthService {
             if (pendingFuture != null && !pendingFuture.isDone()) {
                 log.warn("Timeout khi chờ phản hồi kiểm tra email: {}", correlationId);
                 pendingEmailVerifications.invalidate(correlationId);
-                future.complete(false); // Default to false on timeout
+                // Hết thời gian chờ không có nghĩa là email chưa tồn tại
+                future.completeExceptionally(new TimeoutException("Không nhận được phản hồi kiểm tra email"));
             }
         }, 5, TimeUnit.SECONDS);
     }
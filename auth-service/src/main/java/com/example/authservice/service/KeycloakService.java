@@ -6,10 +6,12 @@ import com.example.authservice.dto.UserEventDTO;
 import com.example.authservice.exception.KeycloakException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.UserResource;
-import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.FederatedIdentityRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
@@ -19,14 +21,22 @@ import org.springframework.stereotype.Service;
 import java.util.Collections;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
-
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Các lời gọi admin API của Keycloak đi qua một client dùng chung (xem KeycloakAdminConfig),
+ * giới hạn số lời gọi đồng thời và đo thời gian từng loại lời gọi ("keycloak.admin.calls").
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KeycloakService {
 
-    @Value("${keycloak.auth-server-url}")
-    private String serverUrl;
+    private final Keycloak keycloakAdmin;
+    private final MeterRegistry meterRegistry;
+    private final UserIdentityIndex userIdentityIndex;
 
     @Value("${keycloak.realm}")
     private String realm;
@@ -34,48 +44,59 @@ public class KeycloakService {
     @Value("${keycloak.resource}")
     private String clientId;
 
-    @Value("${keycloak.credentials.secret}")
-    private String clientSecret;
+    @Value("${keycloak.admin.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
 
-    @Value("${keycloak.admin.username}")
-    private String adminUsername;
+    @Value("${keycloak.admin.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
 
-    @Value("${keycloak.admin.password}")
-    private String adminPassword;
+    private Semaphore adminCallPermits;
 
-    @Value("${keycloak.admin.clientId}")
-    private String adminClientId;
+    @PostConstruct
+    void init() {
+        adminCallPermits = new Semaphore(maxConcurrentCalls);
+    }
 
-    public Keycloak getKeycloakInstance() {
+    /**
+     * Thực hiện một lời gọi admin trên realm, chờ tối đa acquire-timeout-ms nếu đã đủ số lời gọi đồng thời
+     */
+    private <T> T execute(String operation, Function<RealmResource, T> action) {
         try {
-            return KeycloakBuilder.builder()
-                    .serverUrl(serverUrl)
-                    .realm("master")
-                    .username(adminUsername)
-                    .password(adminPassword)
-                    .clientId(adminClientId)
-                    .build();
-        } catch (Exception e) {
-            log.error("Không thể kết nối đến máy chủ Keycloak: {}", e.getMessage());
-            throw new KeycloakException("Không thể kết nối đến hệ thống xác thực", e);
+            if (!adminCallPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new KeycloakException("Hệ thống xác thực đang quá tải, vui lòng thử lại");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeycloakException("Bị gián đoạn khi chờ hệ thống xác thực", e);
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return action.apply(keycloakAdmin.realm(realm));
+        } catch (RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("keycloak.admin.calls", "operation", operation, "outcome", outcome));
+            adminCallPermits.release();
         }
     }
 
     public Response createUser(RegisterRequestDTO request) {
-        Keycloak keycloak = null;
         try {
             CredentialRepresentation credential = new CredentialRepresentation();
             credential.setType(CredentialRepresentation.PASSWORD);
             credential.setValue(request.getPassword());
             credential.setTemporary(false);
 
-            if (getUsers().stream().anyMatch(user -> user.getEmail().equals(request.getEmail()))) {
+            if (isEmailTaken(request.getEmail())) {
                 return Response.status(Response.Status.CONFLICT)
                         .entity("Email đã tồn tại")
                         .build();
             }
             //check phoneNumber
-            if (getUsers().stream().anyMatch(user -> user.getAttributes().get("phoneNumber").contains(request.getPhoneNumber()))) {
+            if (isPhoneNumberTaken(request.getPhoneNumber())) {
                 return Response.status(Response.Status.CONFLICT)
                         .entity("Số điện thoại đã tồn tại")
                         .build();
@@ -90,35 +111,50 @@ public class KeycloakService {
             //thêm phoneNumber vào user
             user.setAttributes(Collections.singletonMap("phoneNumber", Collections.singletonList(request.getPhoneNumber())));
 
-            keycloak = getKeycloakInstance();
-            UsersResource usersResource = keycloak.realm(realm).users();
-            Response response = usersResource.create(user);
-            return response;
+            // Đọc hết Response trong lời gọi để trả kết nối về pool, chỉ giữ lại status, Location và thông báo lỗi
+            Response created = execute("createUser", r -> {
+                try (Response response = r.users().create(user)) {
+                    Response.ResponseBuilder result = Response.status(response.getStatus())
+                            .location(response.getLocation());
+                    if (response.getStatus() != Response.Status.CREATED.getStatusCode() && response.hasEntity()) {
+                        result.entity(response.readEntity(String.class));
+                    }
+                    return result.build();
+                }
+            });
+            if (created.getStatus() == Response.Status.CREATED.getStatusCode() && created.getLocation() != null) {
+                String path = created.getLocation().getPath();
+                userIdentityIndex.register(path.substring(path.lastIndexOf('/') + 1),
+                        request.getEmail(), request.getPhoneNumber());
+            }
+            return created;
         } catch (Exception e) {
             log.error("Không thể tạo người dùng {}: {}", request.getEmail(), e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("Không thể tạo tài khoản: " + e.getMessage())
                     .build();
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
         }
     }
 
-    public List<UserRepresentation> getUsers() {
-        Keycloak keycloak = null;
-        try {
-            keycloak = getKeycloakInstance();
-            return keycloak.realm(realm).users().list();
-        } catch (Exception e) {
-            log.error("Không thể lấy danh sách người dùng: {}", e.getMessage());
-            throw new KeycloakException("Không thể lấy danh sách người dùng: " + e.getMessage(), e);
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
+    /**
+     * Chỉ mục cục bộ trả lời ngay khi email đã được dùng; nếu chưa thấy thì tìm chính xác theo email trên Keycloak
+     */
+    private boolean isEmailTaken(String email) {
+        if (userIdentityIndex.containsEmail(email)) {
+            return true;
+        }
+        return !execute("searchByEmail", r -> r.users().searchByEmail(email, true)).isEmpty();
+    }
+
+    private boolean isPhoneNumberTaken(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isBlank()) {
+            return false;
         }
+        if (userIdentityIndex.containsPhoneNumber(phoneNumber)) {
+            return true;
+        }
+        return !execute("searchByPhoneNumber",
+                r -> r.users().searchByAttributes("phoneNumber:" + phoneNumber)).isEmpty();
     }
 
     public Response SendResetPassword(ForgotPasswordRequestDTO request) {
@@ -128,16 +164,14 @@ public class KeycloakService {
                     .build();
         }
 
-        Keycloak keycloak = null;
         String email = request.getEmail();
 
         try {
             log.info("Bắt đầu quá trình đặt lại mật khẩu cho email: {}", email);
-            keycloak = getKeycloakInstance();
-            UsersResource usersResource = keycloak.realm(realm).users();
 
             // Tìm kiếm người dùng bằng email
-            List<UserRepresentation> users = usersResource.search(null, null, null, email, 0, 10);
+            List<UserRepresentation> users = execute("searchByEmail",
+                    r -> r.users().search(null, null, null, email, 0, 10));
 
             if (users.isEmpty()) {
                 log.warn("Không tìm thấy người dùng với email: {}", email);
@@ -170,12 +204,16 @@ public class KeycloakService {
 
             try {
                 // Gửi email đặt lại mật khẩu với đúng tham số
-                usersResource.get(matchedUser.getId()).executeActionsEmail(
-                        clientId,          // client ID
-                        null,              // redirect URI (sử dụng mặc định)
-                        lifespan,          // thời gian hiệu lực (giây)
-                        List.of("UPDATE_PASSWORD")  // hành động yêu cầu
-                );
+                String userId = matchedUser.getId();
+                execute("executeActionsEmail", r -> {
+                    r.users().get(userId).executeActionsEmail(
+                            clientId,          // client ID
+                            null,              // redirect URI (sử dụng mặc định)
+                            lifespan,          // thời gian hiệu lực (giây)
+                            List.of("UPDATE_PASSWORD")  // hành động yêu cầu
+                    );
+                    return null;
+                });
 
                 log.info("Đã gửi email đặt lại mật khẩu thành công cho: {}", email);
                 return Response.ok().entity("Đã gửi email đặt lại mật khẩu thành công").build();
@@ -190,42 +228,34 @@ public class KeycloakService {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("Không thể xử lý yêu cầu đặt lại mật khẩu: " + e.getMessage())
                     .build();
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
         }
     }
 
     public Response updateUser(UserEventDTO userEvent) {
-        Keycloak keycloak = null;
         try {
-            keycloak = getKeycloakInstance();
-            UsersResource usersResource = keycloak.realm(realm).users();
-            List<UserRepresentation> users = usersResource.list();
-
-            for (UserRepresentation user : users) {
-                if (user.getUsername().equals(userEvent.getEmail())) {
-                    user.setEmail(userEvent.getEmail());
-                    user.setFirstName(userEvent.getFirstName());
-                    user.setLastName(userEvent.getLastName());
-                    // Cập nhật số điện thoại
-                    user.setAttributes(Collections.singletonMap("phoneNumber", Collections.singletonList(userEvent.getPhoneNumber())));
-                    usersResource.get(user.getId()).update(user);
-                    return Response.ok().entity("Cập nhật thông tin người dùng thành công").build();
-                }
+            // Sự kiện từ user-service mang keycloakId nên cập nhật thẳng theo id, không duyệt cả realm
+            String keycloakId = userEvent.getKeycloakId();
+            if (keycloakId == null) {
+                log.warn("Bỏ qua cập nhật người dùng {} vì thiếu keycloakId", userEvent.getEmail());
+                return Response.ok().build();
             }
-
-            return Response.ok().build();
+            execute("updateUser", r -> {
+                UserResource userResource = r.users().get(keycloakId);
+                UserRepresentation user = userResource.toRepresentation();
+                user.setEmail(userEvent.getEmail());
+                user.setFirstName(userEvent.getFirstName());
+                user.setLastName(userEvent.getLastName());
+                // Cập nhật số điện thoại
+                user.setAttributes(Collections.singletonMap("phoneNumber", Collections.singletonList(userEvent.getPhoneNumber())));
+                userResource.update(user);
+                return null;
+            });
+            return Response.ok().entity("Cập nhật thông tin người dùng thành công").build();
         } catch (Exception e) {
             log.error("Không thể cập nhật người dùng {}: {}", userEvent.getEmail(), e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("Không thể cập nhật người dùng: " + e.getMessage())
                     .build();
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
         }
     }
     //Email Already exist
@@ -234,13 +264,10 @@ public class KeycloakService {
             return false;
         }
 
-        Keycloak keycloak = null;
         try {
-            keycloak = getKeycloakInstance();
-            UsersResource usersResource = keycloak.realm(realm).users();
-
             // Use Keycloak's search functionality - much more efficient
-            List<UserRepresentation> users = usersResource.search(null, null, null, email, 0, 10);
+            List<UserRepresentation> users = execute("searchByEmail",
+                    r -> r.users().search(null, null, null, email, 0, 10));
 
             // Case-insensitive checking and null safety
             return users.stream()
@@ -249,21 +276,13 @@ public class KeycloakService {
         } catch (Exception e) {
             log.error("Không thể kiểm tra email {}: {}", email, e.getMessage());
             throw new KeycloakException("Không thể kiểm tra email: " + e.getMessage(), e);
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
         }
     }
 
     public boolean linkGoogleIdentity(String userId, String accessToken, String email) {
-        Keycloak keycloak = null;
         try {
-            keycloak = getKeycloakInstance();
-            UserResource userResource = keycloak.realm(realm).users().get(userId);
-
             List<FederatedIdentityRepresentation> existingIdentities =
-                    userResource.getFederatedIdentity();
+                    execute("getFederatedIdentity", r -> r.users().get(userId).getFederatedIdentity());
 
             boolean alreadyLinked = existingIdentities.stream()
                     .anyMatch(id -> "google".equals(id.getIdentityProvider()));
@@ -288,17 +307,16 @@ public class KeycloakService {
             googleIdentity.setUserName(email);
 
             // Liên kết Identity
-            userResource.addFederatedIdentity("google", googleIdentity);
+            execute("addFederatedIdentity", r -> {
+                r.users().get(userId).addFederatedIdentity("google", googleIdentity).close();
+                return null;
+            });
             log.info("Đã liên kết tài khoản Google cho người dùng: {}", userId);
 
             return true;
         } catch (Exception e) {
             log.error("Không thể liên kết tài khoản Google cho người dùng {}: {}", userId, e.getMessage());
             return false;
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
         }
     }
 
@@ -319,10 +337,9 @@ public class KeycloakService {
     }
 
     public UserRepresentation findUserByEmail(String email) {
-        Keycloak keycloak = null;
         try {
-            keycloak = getKeycloakInstance();
-            List<UserRepresentation> users = keycloak.realm(realm).users().search(null, null, null, email, 0, 1);
+            List<UserRepresentation> users = execute("searchByEmail",
+                    r -> r.users().search(null, null, null, email, 0, 1));
             return users.stream()
                     .filter(user -> email.equalsIgnoreCase(user.getEmail()))
                     .findFirst()
@@ -330,10 +347,6 @@ public class KeycloakService {
         } catch (Exception e) {
             log.error("Không thể tìm người dùng với email {}: {}", email, e.getMessage());
             return null;
-        } finally {
-            if (keycloak != null) {
-                keycloak.close();
-            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.example.authservice.service;
+
+import com.example.authservice.dto.UserEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục email / số điện thoại đã dùng, dựng từ topic compacted "user-identity" do user-service gửi.
+ * Kết quả "đã tồn tại" là chắc chắn; kết quả "chưa thấy" chỉ đáng tin khi đã đọc hết topic lúc khởi động
+ * (xem {@link #lookupEmail}), còn lại vẫn cần hỏi Keycloak / user-service vì sự kiện có thể đến trễ.
+ */
+@Service
+@Slf4j
+public class UserIdentityIndex implements ConsumerSeekAware {
+
+    static final String LISTENER_ID = "userIdentityIndex";
+
+    private final Map<String, String> keycloakIdByEmail = new ConcurrentHashMap<>();
+    private final Map<String, String> keycloakIdByPhone = new ConcurrentHashMap<>();
+    private final Map<String, UserEventDTO> identityByKeycloakId = new ConcurrentHashMap<>();
+    private volatile boolean caughtUp;
+
+    public enum Lookup { PRESENT, ABSENT, UNKNOWN }
+
+    /**
+     * PRESENT nếu email đã có; ABSENT nếu chưa có và chỉ mục đã bắt kịp topic; UNKNOWN khi chỉ mục đang nạp
+     */
+    public Lookup lookupEmail(String email) {
+        if (containsEmail(email)) {
+            return Lookup.PRESENT;
+        }
+        return caughtUp ? Lookup.ABSENT : Lookup.UNKNOWN;
+    }
+
+    public boolean containsEmail(String email) {
+        return email != null && keycloakIdByEmail.containsKey(normalizeEmail(email));
+    }
+
+    public boolean containsPhoneNumber(String phoneNumber) {
+        return phoneNumber != null && keycloakIdByPhone.containsKey(phoneNumber);
+    }
+
+    /**
+     * Ghi nhận ngay user vừa tạo trên Keycloak, không đợi sự kiện từ user-service
+     */
+    public void register(String keycloakId, String email, String phoneNumber) {
+        UserEventDTO identity = new UserEventDTO();
+        identity.setKeycloakId(keycloakId);
+        identity.setEmail(email);
+        identity.setPhoneNumber(phoneNumber);
+        put(identity);
+    }
+
+    // Group id riêng cho mỗi instance để instance nào cũng đọc đủ toàn bộ topic
+    @KafkaListener(id = LISTENER_ID,
+            topics = "${kafka.topic.user-identity}",
+            groupId = "auth-service-identity-${random.uuid}",
+            containerFactory = "userIdentityKafkaListenerContainerFactory")
+    public void onUserIdentity(ConsumerRecord<String, UserEventDTO> record) {
+        UserEventDTO identity = record.value();
+        if (identity == null) {
+            remove(record.key());
+        } else {
+            put(identity);
+        }
+    }
+
+    /**
+     * Container báo rỗi khi không có bản ghi mới. Sự kiện được phát trên thread của consumer nên có thể
+     * so vị trí đọc hiện tại với end offset của từng partition đã gán: chỉ khi đã tới end offset ở mọi
+     * partition thì chỉ mục mới được coi là đã đọc hết topic.
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (caughtUp || !event.getListenerId().startsWith(LISTENER_ID)) {
+            return;
+        }
+        if (reachedEndOffsets(event.getConsumer(), event.getTopicPartitions())) {
+            caughtUp = true;
+            log.info("Chỉ mục định danh người dùng đã nạp xong: {} người dùng", identityByKeycloakId.size());
+        }
+    }
+
+    static boolean reachedEndOffsets(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (consumer == null || partitions == null || partitions.isEmpty()) {
+            return false;
+        }
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+        for (TopicPartition partition : partitions) {
+            Long end = endOffsets.get(partition);
+            if (end == null || consumer.position(partition) < end) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToBeginning(assignments.keySet());
+        log.info("Đang nạp chỉ mục định danh người dùng từ {} partition", assignments.size());
+    }
+
+    private synchronized void put(UserEventDTO identity) {
+        if (identity.getKeycloakId() == null) {
+            return;
+        }
+        // Bỏ email / số điện thoại cũ khi người dùng thay đổi
+        remove(identity.getKeycloakId());
+        identityByKeycloakId.put(identity.getKeycloakId(), identity);
+        if (identity.getEmail() != null) {
+            keycloakIdByEmail.put(normalizeEmail(identity.getEmail()), identity.getKeycloakId());
+        }
+        if (identity.getPhoneNumber() != null) {
+            keycloakIdByPhone.put(identity.getPhoneNumber(), identity.getKeycloakId());
+        }
+    }
+
+    private synchronized void remove(String keycloakId) {
+        UserEventDTO previous = identityByKeycloakId.remove(keycloakId);
+        if (previous == null) {
+            return;
+        }
+        if (previous.getEmail() != null) {
+            keycloakIdByEmail.remove(normalizeEmail(previous.getEmail()), keycloakId);
+        }
+        if (previous.getPhoneNumber() != null) {
+            keycloakIdByPhone.remove(previous.getPhoneNumber(), keycloakId);
+        }
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.benchmarks;
+
+import com.example.authservice.config.KeycloakAdminConfig;
+import com.example.authservice.dto.RegisterRequestDTO;
+import com.example.authservice.service.KeycloakService;
+import com.example.authservice.service.UserIdentityIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * KeycloakService dựng ngoài Spring trên KeycloakStandIn, với giá trị mặc định của keycloak.admin.* trong service.
+ */
+final class AuthServices {
+
+    static final String REALM = "social-network";
+    static final int POOL_SIZE = 20;
+    static final int MAX_CONCURRENT_CALLS = 20;
+
+    private AuthServices() {
+    }
+
+    static Keycloak sharedAdminClient(KeycloakStandIn keycloak) {
+        return new KeycloakAdminConfig().keycloakAdmin(keycloak.serverUrl(), KeycloakStandIn.ADMIN_USERNAME,
+                KeycloakStandIn.ADMIN_PASSWORD, KeycloakStandIn.ADMIN_CLIENT_ID, POOL_SIZE, 2_000, 5_000);
+    }
+
+    static KeycloakService keycloakService(Keycloak keycloakAdmin, UserIdentityIndex userIdentityIndex) {
+        KeycloakService service = new KeycloakService(keycloakAdmin, new SimpleMeterRegistry(), userIdentityIndex);
+        set(service, "realm", REALM);
+        set(service, "clientId", "auth-service");
+        set(service, "maxConcurrentCalls", MAX_CONCURRENT_CALLS);
+        set(service, "acquireTimeoutMs", 2_000L);
+        Method init = ReflectionUtils.findMethod(KeycloakService.class, "init");
+        ReflectionUtils.makeAccessible(init);
+        ReflectionUtils.invokeMethod(init, service);
+        return service;
+    }
+
+    static RegisterRequestDTO registerRequest(long n) {
+        return new RegisterRequestDTO("bench-" + n + "@example.com", "Passw0rd!", "Bench", String.valueOf(n),
+                "MALE", "2000-01-01", String.format("08%08d", n));
+    }
+
+    /**
+     * UserRepresentation mà createUser gửi lên Keycloak cho một yêu cầu đăng ký
+     */
+    static UserRepresentation userRepresentation(RegisterRequestDTO request) {
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setType(CredentialRepresentation.PASSWORD);
+        credential.setValue(request.getPassword());
+        credential.setTemporary(false);
+        UserRepresentation user = new UserRepresentation();
+        user.setEmail(request.getEmail());
+        user.setFirstName(request.getFirstName());
+        user.setLastName(request.getLastName());
+        user.setEnabled(true);
+        user.setCredentials(Collections.singletonList(credential));
+        user.setAttributes(Collections.singletonMap("phoneNumber", Collections.singletonList(request.getPhoneNumber())));
+        return user;
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
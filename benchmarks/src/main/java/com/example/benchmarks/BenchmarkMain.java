@@ -0,0 +1,28 @@
+package com.example.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Điểm vào của benchmarks.jar: giống org.openjdk.jmh.Main nhưng mặc định ghi kết quả JSON
+ * ra jmh-result.json để so sánh giữa các phiên bản.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.addAll(List.of("-rf", "json"));
+        }
+        if (!jmhArgs.contains("-rff")) {
+            jmhArgs.addAll(List.of("-rff", "jmh-result.json"));
+        }
+        Main.main(jmhArgs.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.service.ChatService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Khóa chuẩn của cuộc trò chuyện 1-1, được tính ở mỗi tin nhắn riêng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationIdBenchmark {
+
+    private ChatService chatService;
+    private String userA;
+    private String userB;
+
+    @Setup
+    public void setUp() {
+        // generateConversationId không dùng tới repository hay Kafka
+        chatService = new ChatService(null, null, null, null, null, null, null, null);
+        userA = "5f0c6f5e-8d1a-4c6b-9b43-2f1e7f9a1c01";
+        userB = "0a9d2b7c-3e4f-4a1b-8c2d-6e7f8a9b0c12";
+    }
+
+    @Benchmark
+    public String generateConversationId() {
+        return chatService.generateConversationId(userA, userB);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.benchmarks;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+/**
+ * MongoDB nhúng cho benchmark: repository của service được dựng qua MongoRepositoryFactory,
+ * không cần ApplicationContext. Index khai báo trên model (@CompoundIndex) được tạo như khi bật auto-index.
+ */
+final class EmbeddedMongo implements AutoCloseable {
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private final MongoClient client;
+    final MongoTemplate mongoTemplate;
+    private final MongoRepositoryFactory repositoryFactory;
+
+    private EmbeddedMongo(String database) {
+        mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = mongod.current().getServerAddress();
+        client = MongoClients.create("mongodb://" + address.getHost() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, database);
+        repositoryFactory = new MongoRepositoryFactory(mongoTemplate);
+    }
+
+    static EmbeddedMongo start(String database) {
+        return new EmbeddedMongo(database);
+    }
+
+    <T> T repository(Class<T> repositoryInterface) {
+        return repositoryFactory.getRepository(repositoryInterface);
+    }
+
+    void ensureIndexes(Class<?> entityClass) {
+        IndexOperations indexOps = mongoTemplate.indexOps(entityClass);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(entityClass)
+                .forEach(indexOps::ensureIndex);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        mongod.close();
+    }
+}
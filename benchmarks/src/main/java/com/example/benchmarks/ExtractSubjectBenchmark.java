@@ -0,0 +1,59 @@
+package com.example.benchmarks;
+
+import com.example.authservice.service.AuthService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthService.extractSubjectFromToken (private) trên một access token cỡ thật, gọi qua MethodHandle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractSubjectBenchmark {
+
+    private AuthService authService;
+    private MethodHandle extractSubject;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        authService = new AuthService(null, null, null, null, null, null);
+        Method method = AuthService.class.getDeclaredMethod("extractSubjectFromToken", String.class);
+        method.setAccessible(true);
+        extractSubject = MethodHandles.lookup().unreflect(method);
+
+        String payload = "{\"exp\":1735732800,\"iat\":1735729200,\"jti\":\"4f1c2d3e-5a6b-7c8d-9e0f-1a2b3c4d5e6f\","
+                + "\"iss\":\"http://localhost:8080/realms/social-network\",\"aud\":\"account\","
+                + "\"sub\":\"5f0c6f5e-8d1a-4c6b-9b43-2f1e7f9a1c01\",\"typ\":\"Bearer\",\"azp\":\"auth-service\","
+                + "\"realm_access\":{\"roles\":[\"user\",\"offline_access\",\"uma_authorization\"]},"
+                + "\"scope\":\"openid email profile\",\"email_verified\":true,"
+                + "\"preferred_username\":\"user1@example.com\",\"email\":\"user1@example.com\"}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        token = encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"bench\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + ".signature";
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        // AuthService tạo sẵn một ScheduledExecutorService
+        var field = AuthService.class.getDeclaredField("retryExecutor");
+        field.setAccessible(true);
+        ((java.util.concurrent.ExecutorService) field.get(authService)).shutdownNow();
+    }
+
+    @Benchmark
+    public String extractSubjectFromToken() throws Throwable {
+        return (String) extractSubject.invoke(authService, token);
+    }
+}
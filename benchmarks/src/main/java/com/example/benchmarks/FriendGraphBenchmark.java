@@ -0,0 +1,56 @@
+package com.example.benchmarks;
+
+import com.example.friendservice.service.FriendGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bạn chung và gợi ý kết bạn từ FriendGraph theo kích thước bảng friends, tới 10 triệu hàng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FriendGraphBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    private int edges;
+
+    @Param({"100"})
+    private int avgFriends;
+
+    private FriendGraph graph;
+    private String[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FriendGraphData data = FriendGraphData.generate(edges, avgFriends);
+        userIds = data.userIds;
+        graph = data.build();
+    }
+
+    // Chọn người dùng ngẫu nhiên ngay trong phép đo: chi phí không đáng kể so với thao tác trên đồ thị
+    @State(Scope.Thread)
+    public static class Users {
+        private final SplittableRandom random = new SplittableRandom(7);
+
+        String next(String[] userIds) {
+            return userIds[random.nextInt(userIds.length)];
+        }
+    }
+
+    @Benchmark
+    public List<String> mutualFriends(Users users) {
+        return graph.mutualFriends(users.next(userIds), users.next(userIds));
+    }
+
+    @Benchmark
+    public List<String> suggestions(Users users) {
+        return graph.suggestions(users.next(userIds), 10);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.benchmarks;
+
+import com.example.friendservice.service.FriendGraph;
+
+import java.util.SplittableRandom;
+
+/**
+ * Đồ thị bạn bè tổng hợp cho benchmark: mỗi lời kết bạn ghi hai hàng (hai chiều) như bảng friends,
+ * người dùng có trung bình avgFriends bạn. Cùng seed nên mọi lần chạy có cùng dữ liệu.
+ */
+final class FriendGraphData {
+
+    final String[] userIds;
+    final int[] from;
+    final int[] to;
+
+    private FriendGraphData(String[] userIds, int[] from, int[] to) {
+        this.userIds = userIds;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param edges số hàng của bảng friends (mỗi tình bạn là hai hàng)
+     */
+    static FriendGraphData generate(int edges, int avgFriends) {
+        int users = Math.max(2, edges / avgFriends);
+        String[] userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = "user-" + i;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        int friendships = edges / 2;
+        int[] from = new int[friendships];
+        int[] to = new int[friendships];
+        for (int i = 0; i < friendships; i++) {
+            int user = random.nextInt(users);
+            int friend = random.nextInt(users - 1);
+            from[i] = user;
+            to[i] = friend >= user ? friend + 1 : friend;
+        }
+        return new FriendGraphData(userIds, from, to);
+    }
+
+    FriendGraph build() {
+        FriendGraph.Builder builder = FriendGraph.builder();
+        for (int i = 0; i < from.length; i++) {
+            builder.addEdge(userIds[from[i]], userIds[to[i]]);
+            builder.addEdge(userIds[to[i]], userIds[from[i]]);
+        }
+        return builder.build();
+    }
+}
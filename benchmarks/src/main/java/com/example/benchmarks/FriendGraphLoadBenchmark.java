@@ -0,0 +1,36 @@
+package com.example.benchmarks;
+
+import com.example.friendservice.service.FriendGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian dựng FriendGraph từ các hàng của bảng friends, tương ứng với lần nạp lúc khởi động
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FriendGraphLoadBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    private int edges;
+
+    @Param({"100"})
+    private int avgFriends;
+
+    private FriendGraphData data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = FriendGraphData.generate(edges, avgFriends);
+    }
+
+    @Benchmark
+    public FriendGraph load() {
+        return data.build();
+    }
+}
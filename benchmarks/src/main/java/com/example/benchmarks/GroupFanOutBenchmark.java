@@ -0,0 +1,116 @@
+package com.example.benchmarks;
+
+import com.example.notificationservice.dto.ChatMessage;
+import com.example.notificationservice.dto.ConversationMembershipEvent;
+import com.example.notificationservice.model.Notification;
+import com.example.notificationservice.service.ConversationMembershipCache;
+import com.example.notificationservice.service.NotificationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out thông báo của một tin nhắn nhóm tới mọi thành viên trên Redis nhúng (mục tiêu: 1.000 thành viên
+ * dưới 20 ms): createGroupMessageNotifications (EVALSHA theo lô trong pipeline, gộp theo cuộc trò chuyện)
+ * so với cách cũ (SET, EXPIRE, INCR tuần tự cho từng thành viên).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupFanOutBenchmark {
+
+    private static final String CONVERSATION_ID = "group-1";
+
+    @Param({"100", "500", "1000"})
+    private int members;
+
+    private EmbeddedRedis redis;
+    private StringRedisTemplate redisTemplate;
+    private ObjectMapper objectMapper;
+    private NotificationService notificationService;
+    private List<String> participants;
+    private ChatMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        redisTemplate = redis.redisTemplate;
+        objectMapper = NotificationServices.objectMapper();
+
+        participants = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            participants.add("user-" + i);
+        }
+        ConversationMembershipEvent event = new ConversationMembershipEvent();
+        event.setConversationId(CONVERSATION_ID);
+        event.setType("GROUP");
+        event.setParticipants(participants);
+        ConversationMembershipCache membershipCache = new ConversationMembershipCache(new KafkaListenerEndpointRegistry());
+        membershipCache.onMembershipChanged(new ConsumerRecord<>(ConversationMembershipCache.MEMBERSHIP_TOPIC,
+                0, 0L, CONVERSATION_ID, event));
+        notificationService = NotificationServices.create(redisTemplate, membershipCache);
+
+        message = new ChatMessage();
+        message.setId("m-1");
+        message.setSenderId("user-0");
+        message.setConversationId(CONVERSATION_ID);
+        message.setContent("Xin chào cả nhóm");
+        message.setType("text");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Benchmark
+    public void pipelinedFanOut() {
+        notificationService.createGroupMessageNotifications(List.of(message));
+    }
+
+    /**
+     * createGroupMessageNotifications trước khi có pipeline: ba lệnh Redis nối tiếp cho mỗi thành viên
+     */
+    @Benchmark
+    public void sequentialFanOut() {
+        for (String userId : participants) {
+            if (userId.equals(message.getSenderId())) {
+                continue;
+            }
+            Notification notification = new Notification();
+            notification.setId(UUID.randomUUID().toString());
+            notification.setUserId(userId);
+            notification.setSenderId(message.getSenderId());
+            notification.setMessageId(message.getId());
+            notification.setConversationId(message.getConversationId());
+            notification.setContent(message.getContent());
+            notification.setType("GROUP_MESSAGE");
+            notification.setCreatedAt(LocalDateTime.now());
+
+            String key = "legacy_notifications:" + userId + ":" + notification.getId();
+            redisTemplate.opsForValue().set(key, write(notification));
+            redisTemplate.expire(key, 7, TimeUnit.DAYS);
+            redisTemplate.opsForValue().increment("unread_count:" + userId);
+        }
+    }
+
+    private String write(Notification notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
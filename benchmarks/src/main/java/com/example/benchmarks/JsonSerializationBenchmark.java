@@ -0,0 +1,94 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.model.ChatMessage;
+import com.example.friendservice.dto.FriendEvent;
+import com.example.notificationservice.model.Notification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON của các payload Kafka / Redis chính, với ObjectMapper cấu hình như trong các service
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ChatMessage chatMessage;
+    private Notification notification;
+    private FriendEvent friendEvent;
+    private String chatMessageJson;
+    private String notificationJson;
+    private String friendEventJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        chatMessage = new ChatMessage("m-1", "u-1_u-2", "u-1", "u-2",
+                "Xin chào, hôm nay bạn thế nào?", now, "UNREAD", "text", null);
+
+        notification = new Notification();
+        notification.setId("group:c-1");
+        notification.setUserId("u-2");
+        notification.setSenderId("u-1");
+        notification.setMessageId("m-1");
+        notification.setConversationId("c-1");
+        notification.setContent("Xin chào, hôm nay bạn thế nào?");
+        notification.setType("GROUP_MESSAGE");
+        notification.setCreatedAt(now);
+        notification.setCount(3);
+
+        friendEvent = new FriendEvent();
+        friendEvent.setType("FRIEND_REQUEST_ACCEPTED");
+        friendEvent.setSenderId("u-1");
+        friendEvent.setReceiverId("u-2");
+        friendEvent.setTimestamp(now);
+
+        chatMessageJson = objectMapper.writeValueAsString(chatMessage);
+        notificationJson = objectMapper.writeValueAsString(notification);
+        friendEventJson = objectMapper.writeValueAsString(friendEvent);
+    }
+
+    @Benchmark
+    public String serializeChatMessage() throws Exception {
+        return objectMapper.writeValueAsString(chatMessage);
+    }
+
+    @Benchmark
+    public ChatMessage deserializeChatMessage() throws Exception {
+        return objectMapper.readValue(chatMessageJson, ChatMessage.class);
+    }
+
+    @Benchmark
+    public String serializeNotification() throws Exception {
+        return objectMapper.writeValueAsString(notification);
+    }
+
+    @Benchmark
+    public Notification deserializeNotification() throws Exception {
+        return objectMapper.readValue(notificationJson, Notification.class);
+    }
+
+    @Benchmark
+    public String serializeFriendEvent() throws Exception {
+        return objectMapper.writeValueAsString(friendEvent);
+    }
+
+    @Benchmark
+    public FriendEvent deserializeFriendEvent() throws Exception {
+        return objectMapper.readValue(friendEventJson, FriendEvent.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.config.JwksKeyProvider;
+import com.example.chatservice.config.JwtChannelInterceptor;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Xác thực frame STOMP: CONNECT (parse + verify chữ ký RS256) và SEND dùng lại principal của session
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtChannelInterceptorBenchmark {
+
+    private JwksKeyProvider keyProvider;
+    private JwtChannelInterceptor interceptor;
+    private String token;
+    private Map<String, Object> session;
+
+    @Setup
+    public void setUp() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("bench").generate();
+        JWSVerifier verifier = new RSASSAVerifier(key.toRSAPublicKey());
+        // Khóa đã có sẵn trong bộ nhớ đệm: chỉ đo phần parse / verify, không đo tải JWKS
+        keyProvider = new JwksKeyProvider("http://127.0.0.1:1/certs", 3600, 0) {
+            @Override
+            public JWSVerifier getVerifier(String keyId) {
+                return verifier;
+            }
+        };
+        interceptor = new JwtChannelInterceptor(keyProvider);
+
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("user-1")
+                .claim("preferred_username", "user-1")
+                .claim("email", "user-1@example.com")
+                .claim("realm_access", Map.of("roles", List.of("user", "offline_access")))
+                .expirationTime(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("bench").build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        token = jwt.serialize();
+
+        session = new HashMap<>();
+        interceptor.preSend(frame(StompCommand.CONNECT, session), null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        keyProvider.cleanup();
+    }
+
+    @Benchmark
+    public Message<?> connect() {
+        return interceptor.preSend(frame(StompCommand.CONNECT, new HashMap<>()), null);
+    }
+
+    @Benchmark
+    public Message<?> sendOnAuthenticatedSession() {
+        return interceptor.preSend(frame(StompCommand.SEND, session), null);
+    }
+
+    private Message<?> frame(StompCommand command, Map<String, Object> sessionAttributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("bench-session");
+        accessor.setSessionAttributes(sessionAttributes);
+        accessor.setNativeHeader("Authorization", "Bearer " + token);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
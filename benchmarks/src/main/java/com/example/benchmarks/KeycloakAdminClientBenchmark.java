@@ -0,0 +1,117 @@
+package com.example.benchmarks;
+
+import com.example.authservice.dto.RegisterRequestDTO;
+import com.example.authservice.service.KeycloakService;
+import com.example.authservice.service.UserIdentityIndex;
+import jakarta.ws.rs.core.Response;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thông lượng đăng ký và kiểm tra email của KeycloakService trên KeycloakStandIn, 16 luồng đồng thời:
+ * admin client dùng chung (KeycloakAdminConfig: pool kết nối, token được làm mới) so với cách cũ dựng
+ * một client mới và đăng nhập admin cho mỗi lời gọi. Cả hai cách cùng dùng tìm kiếm theo chỉ mục,
+ * chỉ khác vòng đời của client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class KeycloakAdminClientBenchmark {
+
+    private static final int SEEDED_USERS = 1_000;
+
+    // Chi phí password grant của admin trên Keycloak (băm mật khẩu)
+    @Param({"0", "25"})
+    private long passwordGrantMillis;
+
+    private KeycloakStandIn keycloak;
+    private Keycloak sharedAdmin;
+    private KeycloakService keycloakService;
+    private final AtomicLong registrations = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keycloak = KeycloakStandIn.start(AuthServices.REALM, passwordGrantMillis);
+        keycloak.seed(SEEDED_USERS);
+        sharedAdmin = AuthServices.sharedAdminClient(keycloak);
+        keycloakService = AuthServices.keycloakService(sharedAdmin, new UserIdentityIndex());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sharedAdmin.close();
+        keycloak.close();
+    }
+
+    @Benchmark
+    public int registerSharedClient() {
+        return created(keycloakService.createUser(AuthServices.registerRequest(registrations.incrementAndGet())));
+    }
+
+    @Benchmark
+    public int registerPerCallClient() {
+        RegisterRequestDTO request = AuthServices.registerRequest(registrations.incrementAndGet());
+        if (!perCallClient(r -> r.realm(AuthServices.REALM).users().searchByEmail(request.getEmail(), true)).isEmpty()
+                || !perCallClient(r -> r.realm(AuthServices.REALM).users()
+                        .searchByAttributes("phoneNumber:" + request.getPhoneNumber())).isEmpty()) {
+            throw new IllegalStateException("Email hoặc số điện thoại đã tồn tại: " + request.getEmail());
+        }
+        return created(perCallClient(r -> {
+            try (Response response = r.realm(AuthServices.REALM).users()
+                    .create(AuthServices.userRepresentation(request))) {
+                return Response.status(response.getStatus()).build();
+            }
+        }));
+    }
+
+    @Benchmark
+    public boolean emailCheckSharedClient() {
+        return keycloakService.isEmailExist(seededEmail());
+    }
+
+    @Benchmark
+    public boolean emailCheckPerCallClient() {
+        String email = seededEmail();
+        List<UserRepresentation> users = perCallClient(r ->
+                r.realm(AuthServices.REALM).users().search(null, null, null, email, 0, 10));
+        return users.stream().anyMatch(user -> email.equalsIgnoreCase(user.getEmail()));
+    }
+
+    /**
+     * getKeycloakInstance() trước đây: client mới, đăng nhập admin bằng password grant, đóng sau lời gọi
+     */
+    private <T> T perCallClient(Function<Keycloak, T> call) {
+        try (Keycloak client = KeycloakBuilder.builder()
+                .serverUrl(keycloak.serverUrl())
+                .realm("master")
+                .username(KeycloakStandIn.ADMIN_USERNAME)
+                .password(KeycloakStandIn.ADMIN_PASSWORD)
+                .clientId(KeycloakStandIn.ADMIN_CLIENT_ID)
+                .build()) {
+            return call.apply(client);
+        }
+    }
+
+    private String seededEmail() {
+        return "seed-" + (lookups.incrementAndGet() % SEEDED_USERS) + "@example.com";
+    }
+
+    private static int created(Response response) {
+        if (response.getStatus() != Response.Status.CREATED.getStatusCode()) {
+            throw new IllegalStateException("Tạo user thất bại: HTTP " + response.getStatus());
+        }
+        return response.getStatus();
+    }
+}
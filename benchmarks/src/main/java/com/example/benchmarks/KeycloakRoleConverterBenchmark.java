@@ -0,0 +1,45 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.config.KeycloakRoleConverter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chuyển realm_access.roles của Keycloak thành GrantedAuthority, chạy ở mỗi request REST có JWT
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeycloakRoleConverterBenchmark {
+
+    private KeycloakRoleConverter converter;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        converter = new KeycloakRoleConverter();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-1")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claim("realm_access", Map.of("roles",
+                        List.of("user", "offline_access", "uma_authorization", "default-roles-social-network")))
+                .build();
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> convert() {
+        return converter.convert(jwt);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keycloak giả lập trên HTTP cho benchmark của auth-service, chỉ gồm các endpoint mà KeycloakService dùng:
+ * token (password grant của admin), tìm user theo email / thuộc tính phoneNumber (tra theo chỉ mục như
+ * Keycloak), liệt kê toàn bộ realm và tạo user. Password grant chờ passwordGrantMillis để mô phỏng
+ * chi phí băm mật khẩu của Keycloak.
+ */
+final class KeycloakStandIn implements AutoCloseable {
+
+    static final String ADMIN_USERNAME = "admin";
+    static final String ADMIN_PASSWORD = "admin";
+    static final String ADMIN_CLIENT_ID = "admin-cli";
+
+    static {
+        // HttpServer ghi header và body thành hai lần gửi; không tắt Nagle thì mỗi phản hồi chờ ACK trễ ~40 ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final long passwordGrantMillis;
+    private final Map<String, UserRepresentation> usersById = new ConcurrentHashMap<>();
+    private final Map<String, UserRepresentation> usersByEmail = new ConcurrentHashMap<>();
+    private final Map<String, UserRepresentation> usersByPhone = new ConcurrentHashMap<>();
+    private final AtomicLong passwordGrants = new AtomicLong();
+
+    private KeycloakStandIn(String realm, long passwordGrantMillis) throws IOException {
+        this.passwordGrantMillis = passwordGrantMillis;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/realms/master/protocol/openid-connect/token", this::token);
+        server.createContext("/admin/realms/" + realm + "/users", this::users);
+        server.start();
+    }
+
+    static KeycloakStandIn start(String realm, long passwordGrantMillis) {
+        try {
+            return new KeycloakStandIn(realm, passwordGrantMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    String serverUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long passwordGrants() {
+        return passwordGrants.get();
+    }
+
+    void seed(int users) {
+        for (int i = 0; i < users; i++) {
+            UserRepresentation user = new UserRepresentation();
+            user.setEmail("seed-" + i + "@example.com");
+            user.setFirstName("Seed");
+            user.setLastName(String.valueOf(i));
+            user.setEnabled(true);
+            user.setAttributes(Map.of("phoneNumber", List.of(String.format("09%08d", i))));
+            add(user);
+        }
+    }
+
+    private String add(UserRepresentation user) {
+        user.setId(UUID.randomUUID().toString());
+        user.setCredentials(null);
+        usersById.put(user.getId(), user);
+        if (user.getEmail() != null) {
+            usersByEmail.put(user.getEmail().toLowerCase(Locale.ROOT), user);
+        }
+        List<String> phones = user.getAttributes() != null ? user.getAttributes().get("phoneNumber") : null;
+        if (phones != null) {
+            phones.forEach(phone -> usersByPhone.put(phone, user));
+        }
+        return user.getId();
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        passwordGrants.incrementAndGet();
+        if (passwordGrantMillis > 0) {
+            try {
+                Thread.sleep(passwordGrantMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.getRequestBody().readAllBytes();
+        respond(exchange, 200, Map.of(
+                "access_token", "admin-token-" + passwordGrants.get(),
+                "token_type", "Bearer",
+                "expires_in", 300,
+                "refresh_token", "admin-refresh",
+                "refresh_expires_in", 1800));
+    }
+
+    private void users(HttpExchange exchange) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            UserRepresentation user = objectMapper.readValue(exchange.getRequestBody(), UserRepresentation.class);
+            if (user.getEmail() != null && usersByEmail.containsKey(user.getEmail().toLowerCase(Locale.ROOT))) {
+                respond(exchange, 409, Map.of("errorMessage", "User exists with same email"));
+                return;
+            }
+            String id = add(user);
+            exchange.getResponseHeaders().add("Location",
+                    serverUrl() + exchange.getRequestURI().getPath() + "/" + id);
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+            return;
+        }
+
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        List<UserRepresentation> result;
+        if (query.containsKey("email")) {
+            UserRepresentation user = usersByEmail.get(query.get("email").toLowerCase(Locale.ROOT));
+            result = user != null ? List.of(user) : List.of();
+        } else if (query.getOrDefault("q", "").startsWith("phoneNumber:")) {
+            UserRepresentation user = usersByPhone.get(query.get("q").substring("phoneNumber:".length()));
+            result = user != null ? List.of(user) : List.of();
+        } else {
+            // users().list(): toàn bộ realm
+            result = new ArrayList<>(usersById.values());
+        }
+        respond(exchange, 200, result);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
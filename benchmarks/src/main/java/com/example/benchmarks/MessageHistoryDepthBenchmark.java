@@ -0,0 +1,101 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.dto.MessageHistoryPage;
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.repository.ChatMessageRepository;
+import com.example.chatservice.service.ChatService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đọc một trang lịch sử ở độ sâu depth của cuộc trò chuyện có 1M tin nhắn trên MongoDB nhúng (có index
+ * conversation_timestamp_id): getMessagesByConversationId (skip/limit) so với getMessageHistory
+ * (con trỏ timestamp, id). Gọi thẳng ChatService không qua proxy nên không có cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MessageHistoryDepthBenchmark {
+
+    private static final String CONVERSATION_ID = "group-1";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"1000000"})
+    private int messages;
+
+    // Số tin nhắn mới hơn trang được đọc
+    @Param({"0", "10000", "100000", "900000"})
+    private int depth;
+
+    @Param({"50"})
+    private int pageSize;
+
+    private EmbeddedMongo mongo;
+    private ChatService chatService;
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = EmbeddedMongo.start("chat_db");
+        mongo.ensureIndexes(ChatMessage.class);
+
+        List<ChatMessage> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < messages; i++) {
+            batch.add(new ChatMessage(messageId(i), CONVERSATION_ID, "user-" + (i % 100), null,
+                    "Tin nhắn số " + i, START.plusSeconds(i), "READ", "text", null));
+            if (batch.size() == 10_000) {
+                mongo.mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongo.mongoTemplate.insertAll(batch);
+
+        // Hai hàm lịch sử chỉ dùng ChatMessageRepository
+        chatService = new ChatService(mongo.repository(ChatMessageRepository.class), null, null, null, null, null,
+                null, null);
+
+        // Con trỏ trỏ tới tin nhắn cũ nhất của trang trước, như nextCursor mà client nhận được
+        if (depth > 0) {
+            int oldestSeen = messages - depth;
+            String raw = START.plusSeconds(oldestSeen) + "|" + messageId(oldestSeen);
+            cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        verifySamePage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongo.close();
+    }
+
+    @Benchmark
+    public List<ChatMessage> skipLimit() {
+        return chatService.getMessagesByConversationId(CONVERSATION_ID, depth / pageSize, pageSize);
+    }
+
+    @Benchmark
+    public MessageHistoryPage keyset() {
+        return chatService.getMessageHistory(CONVERSATION_ID, cursor, pageSize);
+    }
+
+    private void verifySamePage() {
+        List<String> skipped = skipLimit().stream().map(ChatMessage::getId).toList();
+        List<String> seeked = keyset().getMessages().stream().map(ChatMessage::getId).toList();
+        if (skipped.size() != pageSize || !skipped.equals(seeked)) {
+            throw new IllegalStateException("Hai cách phân trang trả về trang khác nhau ở độ sâu " + depth);
+        }
+    }
+
+    private static String messageId(int i) {
+        return String.format("m-%07d", i);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.benchmarks;
+
+import com.example.notificationservice.dto.ChatMessage;
+import com.example.notificationservice.kafka.NotificationConsumer;
+import com.example.notificationservice.service.ConversationMembershipCache;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Số tin nhắn riêng/giây mà notification-service tiêu thụ từ Kafka nhúng (topic 10 partition như chat-service)
+ * và ghi thành thông báo trên Redis nhúng. Container lấy từ KafkaConfig của service (concurrency 10,
+ * max.poll.records 500): chế độ batch gọi NotificationConsumer với cả lô của một lần poll (một pipeline),
+ * chế độ record gọi nó với từng bản ghi như listener trước đây. Mỗi lần gọi dùng một consumer group mới
+ * đọc lại RECORDS bản ghi từ đầu topic, nên thời gian join group cũng được tính.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(NotificationConsumerThroughputBenchmark.RECORDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class NotificationConsumerThroughputBenchmark {
+
+    static final int RECORDS = 100_000;
+    private static final String TOPIC = "private-messages";
+    private static final int RECEIVERS = 10_000;
+
+    @Param({"record", "batch"})
+    private String mode;
+
+    private EmbeddedKafkaKraftBroker kafka;
+    private EmbeddedRedis redis;
+    private NotificationConsumer notificationConsumer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kafka = new EmbeddedKafkaKraftBroker(1, NotificationServices.KAFKA_CONCURRENCY, TOPIC);
+        kafka.brokerProperty("group.initial.rebalance.delay.ms", "0");
+        kafka.afterPropertiesSet();
+        redis = EmbeddedRedis.start();
+        notificationConsumer = new NotificationConsumer(
+                NotificationServices.create(redis.redisTemplate, new ConversationMembershipCache(new KafkaListenerEndpointRegistry())));
+
+        Map<String, Object> producerProps = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBrokersAsString(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 5);
+        DefaultKafkaProducerFactory<String, com.example.chatservice.model.ChatMessage> producerFactory =
+                new DefaultKafkaProducerFactory<>(producerProps);
+        KafkaTemplate<String, com.example.chatservice.model.ChatMessage> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        LocalDateTime now = LocalDateTime.now();
+        // Cùng khóa (receiverId) và serializer với MessageProducer của chat-service
+        for (int i = 0; i < RECORDS; i++) {
+            String receiverId = "user-" + (i % RECEIVERS);
+            var message = new com.example.chatservice.model.ChatMessage("m-" + i, "sender_" + receiverId, "sender",
+                    receiverId, "Tin nhắn số " + i, now, "UNREAD", "text", null);
+            kafkaTemplate.send(TOPIC, receiverId, message);
+        }
+        kafkaTemplate.flush();
+        producerFactory.destroy();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearNotifications() {
+        redis.redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.close();
+        kafka.destroy();
+    }
+
+    @Benchmark
+    public void consumeTopic() throws InterruptedException {
+        CountDownLatch consumed = new CountDownLatch(RECORDS);
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                NotificationServices.kafkaConfig(kafka.getBrokersAsString()).kafkaListenerContainerFactory();
+        factory.setBatchListener(mode.equals("batch"));
+        ConcurrentMessageListenerContainer<String, Object> container = factory.createContainer(TOPIC);
+        container.getContainerProperties().setGroupId("notification-bench-" + UUID.randomUUID());
+        container.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        if (mode.equals("batch")) {
+            container.setupMessageListener((BatchMessageListener<String, Object>) records -> {
+                List<ChatMessage> messages = new ArrayList<>(records.size());
+                for (ConsumerRecord<String, Object> record : records) {
+                    messages.add((ChatMessage) record.value());
+                }
+                notificationConsumer.consumePrivateMessages(messages);
+                records.forEach(record -> consumed.countDown());
+            });
+        } else {
+            container.setupMessageListener((MessageListener<String, Object>) record -> {
+                notificationConsumer.consumePrivateMessages(
+                        Collections.singletonList((ChatMessage) record.value()));
+                consumed.countDown();
+            });
+        }
+
+        container.start();
+        try {
+            if (!consumed.await(5, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Chỉ tiêu thụ được " + (RECORDS - consumed.getCount()) + " bản ghi");
+            }
+        } finally {
+            container.stop();
+        }
+    }
+}
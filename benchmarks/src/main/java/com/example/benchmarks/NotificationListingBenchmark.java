@@ -0,0 +1,156 @@
+package com.example.benchmarks;
+
+import com.example.notificationservice.dto.ChatMessage;
+import com.example.notificationservice.model.Notification;
+import com.example.notificationservice.service.ConversationMembershipCache;
+import com.example.notificationservice.service.NotificationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đọc trang thông báo đầu tiên của một người dùng khi tổng số người dùng trong Redis tăng dần:
+ * NotificationService.getUserNotifications (ZSET + HASH của chính người dùng) so với cách cũ
+ * (KEYS "notifications:<userId>:*" rồi một GET cho mỗi key). Mỗi người dùng khác có một thông báo
+ * ở cả hai định dạng, người dùng được đo có PAGE_SIZE thông báo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NotificationListingBenchmark {
+
+    private static final String USER_ID = "user-0";
+    private static final String LEGACY_KEY = "notifications:";
+    private static final int PAGE_SIZE = 50;
+    private static final int SEED_BATCH = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    private EmbeddedRedis redis;
+    private StringRedisTemplate redisTemplate;
+    private ObjectMapper objectMapper;
+    private NotificationService notificationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        redisTemplate = redis.redisTemplate;
+        objectMapper = NotificationServices.objectMapper();
+        notificationService = NotificationServices.create(redisTemplate, new ConversationMembershipCache(new KafkaListenerEndpointRegistry()));
+
+        List<ChatMessage> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            batch.add(message(USER_ID, i));
+        }
+        for (int i = 1; i < users; i++) {
+            batch.add(message("user-" + i, i));
+            if (batch.size() >= SEED_BATCH) {
+                seed(batch);
+                batch.clear();
+            }
+        }
+        seed(batch);
+
+        if (notificationService.getUserNotifications(USER_ID, 0, PAGE_SIZE).size() != PAGE_SIZE
+                || legacyListing().size() != PAGE_SIZE) {
+            throw new IllegalStateException("Dữ liệu seed không đủ " + PAGE_SIZE + " thông báo cho " + USER_ID);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.close();
+    }
+
+    @Benchmark
+    public List<Notification> sortedSetPage() {
+        return notificationService.getUserNotifications(USER_ID, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Notification> keysScan() {
+        return legacyListing();
+    }
+
+    /**
+     * getUserNotifications trước khi có ZSET theo người dùng
+     */
+    private List<Notification> legacyListing() {
+        Set<String> keys = redisTemplate.keys(LEGACY_KEY + USER_ID + ":*");
+        List<Notification> notifications = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            String payload = redisTemplate.opsForValue().get(key);
+            if (payload != null) {
+                notifications.add(read(payload));
+            }
+        }
+        notifications.sort(Comparator.comparing(Notification::getCreatedAt).reversed());
+        return notifications;
+    }
+
+    /**
+     * Ghi lô thông báo qua service (định dạng mới) và thêm một key "notifications:<userId>:<id>" cho mỗi
+     * thông báo (định dạng cũ) trong một pipeline
+     */
+    private void seed(List<ChatMessage> messages) {
+        notificationService.createMessageNotifications(messages);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ChatMessage message : messages) {
+                Notification notification = new Notification();
+                notification.setId(UUID.randomUUID().toString());
+                notification.setUserId(message.getReceiverId());
+                notification.setSenderId(message.getSenderId());
+                notification.setMessageId(message.getId());
+                notification.setContent(message.getContent());
+                notification.setType("MESSAGE");
+                notification.setCreatedAt(LocalDateTime.now());
+                byte[] key = (LEGACY_KEY + message.getReceiverId() + ":" + notification.getId())
+                        .getBytes(StandardCharsets.UTF_8);
+                connection.stringCommands().set(key, write(notification));
+            }
+            return null;
+        });
+    }
+
+    private static ChatMessage message(String receiverId, int i) {
+        ChatMessage message = new ChatMessage();
+        message.setId("m-" + i);
+        message.setSenderId("sender-" + i);
+        message.setReceiverId(receiverId);
+        message.setContent("Tin nhắn số " + i);
+        message.setType("text");
+        return message;
+    }
+
+    private byte[] write(Notification notification) {
+        try {
+            return objectMapper.writeValueAsBytes(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Notification read(String payload) {
+        try {
+            return objectMapper.readValue(payload, Notification.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.benchmarks;
+
+import com.example.notificationservice.config.KafkaConfig;
+import com.example.notificationservice.service.ConversationMembershipCache;
+import com.example.notificationservice.service.NotificationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * NotificationService và KafkaConfig dựng ngoài Spring, với giá trị mặc định của các thuộc tính notification.*
+ * trong service.
+ */
+final class NotificationServices {
+
+    static final int MAX_PER_USER = 200;
+    static final int FAN_OUT_BATCH_SIZE = 500;
+    static final int KAFKA_CONCURRENCY = 10;
+    static final int MAX_POLL_RECORDS = 500;
+
+    private NotificationServices() {
+    }
+
+    static ObjectMapper objectMapper() {
+        // Cùng cấu hình mặc định với ObjectMapper mà Spring Boot tạo cho service
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    static NotificationService create(StringRedisTemplate redisTemplate, ConversationMembershipCache membershipCache) {
+        NotificationService service = new NotificationService(redisTemplate, objectMapper(), membershipCache);
+        set(service, "maxNotificationsPerUser", MAX_PER_USER);
+        set(service, "fanOutBatchSize", FAN_OUT_BATCH_SIZE);
+        return service;
+    }
+
+    static KafkaConfig kafkaConfig(String bootstrapServers) {
+        KafkaConfig kafkaConfig = new KafkaConfig();
+        set(kafkaConfig, "bootstrapServers", bootstrapServers);
+        set(kafkaConfig, "concurrency", KAFKA_CONCURRENCY);
+        set(kafkaConfig, "maxPollRecords", MAX_POLL_RECORDS);
+        return kafkaConfig;
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.kafka.MessageProducer;
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.model.Conversation;
+import com.example.chatservice.repository.ChatMessageRepository;
+import com.example.chatservice.repository.ConversationRepository;
+import com.example.chatservice.service.ChatCacheService;
+import com.example.chatservice.service.ChatService;
+import com.example.chatservice.service.InboxService;
+import com.example.chatservice.service.UnreadCounterService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi một tin nhắn riêng trên MongoDB nhúng, so sánh đường cũ (truy vấn $all trên participants,
+ * lưu tin nhắn, ghi lại toàn bộ document Conversation) với ChatService.savePrivateMessage hiện tại
+ * (chỉ mục cặp người dùng trong bộ nhớ, lưu tin nhắn, một lệnh $set các trường tin nhắn cuối).
+ * Kafka và các bước Redis được thay bằng bản rỗng: cả hai đường đều gửi Kafka bất đồng bộ nên chỉ phần Mongo
+ * nằm trên luồng request. Chế độ SampleTime để đọc p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrivateMessageWriteBenchmark {
+
+    private static final int ACTIVE_PAIRS = 1_000;
+
+    // Số cuộc trò chuyện 1-1 có sẵn trong collection, quyết định chi phí của truy vấn $all
+    @Param({"10000", "100000"})
+    private int conversations;
+
+    private EmbeddedMongo mongo;
+    private ChatMessageRepository chatMessageRepository;
+    private ConversationRepository conversationRepository;
+    private ChatService chatService;
+    private String[][] pairs;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = EmbeddedMongo.start("chat_db");
+        mongo.ensureIndexes(ChatMessage.class);
+        chatMessageRepository = mongo.repository(ChatMessageRepository.class);
+        conversationRepository = mongo.repository(ConversationRepository.class);
+
+        pairs = new String[conversations][];
+        List<Conversation> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < conversations; i++) {
+            String sender = "user-" + (2 * i);
+            String receiver = "user-" + (2 * i + 1);
+            pairs[i] = new String[]{sender, receiver};
+            Conversation conversation = new Conversation();
+            conversation.setId(sender.compareTo(receiver) < 0 ? sender + "_" + receiver : receiver + "_" + sender);
+            conversation.setType("ONE_TO_ONE");
+            conversation.setParticipants(Arrays.asList(sender, receiver));
+            conversation.setCreatorId(sender);
+            conversation.onCreate();
+            batch.add(conversation);
+            if (batch.size() == 10_000) {
+                mongo.mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongo.mongoTemplate.insertAll(batch);
+
+        chatService = new ChatService(chatMessageRepository, conversationRepository, new NoOpMessageProducer(),
+                new NoOpChatCacheService(), null, null, new NoOpUnreadCounterService(), new NoOpInboxService());
+        // Tin nhắn chỉ đi giữa ACTIVE_PAIRS cặp; chỉ mục cặp người dùng được làm nóng trước khi đo
+        for (int i = 0; i < ACTIVE_PAIRS; i++) {
+            chatService.savePrivateMessage(message(pairs[i]));
+        }
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongo.close();
+    }
+
+    @Benchmark
+    public ChatMessage legacyWrite() {
+        String[] pair = pairs[random.nextInt(ACTIVE_PAIRS)];
+        ChatMessage chatMessage = message(pair);
+
+        // Đường ghi trước khi có chỉ mục cặp người dùng và updateLastMessage
+        Conversation conversation = conversationRepository
+                .findByTypeAndBothParticipants("ONE_TO_ONE", pair[0], pair[1])
+                .orElseThrow();
+        chatMessage.setConversationId(conversation.getId());
+        chatMessage.setTimestamp(LocalDateTime.now());
+        chatMessage.setStatus("UNREAD");
+        ChatMessage savedMessage = chatMessageRepository.save(chatMessage);
+
+        conversation.setLastActivity(LocalDateTime.now());
+        conversation.setLastMessageId(savedMessage.getId());
+        conversation.setLastMessageContent(savedMessage.getContent());
+        conversation.setLastMessageSenderId(savedMessage.getSenderId());
+        conversationRepository.save(conversation);
+        return savedMessage;
+    }
+
+    @Benchmark
+    public ChatMessage pipelinedWrite() {
+        return chatService.savePrivateMessage(message(pairs[random.nextInt(ACTIVE_PAIRS)]));
+    }
+
+    private static ChatMessage message(String[] pair) {
+        ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setSenderId(pair[0]);
+        chatMessage.setReceiverId(pair[1]);
+        chatMessage.setContent("Xin chào");
+        chatMessage.setType("text");
+        return chatMessage;
+    }
+
+    private static final class NoOpMessageProducer extends MessageProducer {
+        NoOpMessageProducer() {
+            super(null, null);
+        }
+
+        @Override
+        public void sendPrivateMessage(ChatMessage message) {
+        }
+    }
+
+    private static final class NoOpChatCacheService extends ChatCacheService {
+        NoOpChatCacheService() {
+            super(null);
+        }
+
+        @Override
+        public void evictConversationMessages(String conversationId) {
+        }
+
+        @Override
+        public void evictUserConversations(Collection<String> userIds) {
+        }
+    }
+
+    private static final class NoOpUnreadCounterService extends UnreadCounterService {
+        NoOpUnreadCounterService() {
+            super(null);
+        }
+
+        @Override
+        public void increment(String conversationId, Collection<String> recipientIds) {
+        }
+    }
+
+    private static final class NoOpInboxService extends InboxService {
+        NoOpInboxService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void recordMessage(String conversationId, String name, String type,
+                                  Collection<String> participants, ChatMessage message) {
+        }
+    }
+}
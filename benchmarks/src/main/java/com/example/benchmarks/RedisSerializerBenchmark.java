@@ -0,0 +1,91 @@
+package com.example.benchmarks;
+
+import com.example.chatservice.config.RedisConfig;
+import com.example.chatservice.dto.MessageHistoryPage;
+import com.example.chatservice.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializer giá trị của hai cache tin nhắn trong chat-service, lấy từ chính RedisCacheManager của service:
+ * "conversationMessages" dùng GenericJackson2JsonRedisSerializer mặc định, không ghi thông tin kiểu nên
+ * danh sách đọc lại là các LinkedHashMap; "conversationHistory" dùng Jackson2JsonRedisSerializer gắn với
+ * MessageHistoryPage. Setup kiểm tra round trip trước khi đo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"20", "50"})
+    private int pageSize;
+
+    private SerializationPair<Object> messagesSerializer;
+    private SerializationPair<Object> historySerializer;
+    private List<ChatMessage> messages;
+    private MessageHistoryPage page;
+    private ByteBuffer messagesBytes;
+    private ByteBuffer pageBytes;
+
+    @Setup
+    public void setUp() {
+        RedisConfig redisConfig = new RedisConfig();
+        ObjectMapper objectMapper = redisConfig.objectMapper();
+        // Chỉ dựng cấu hình cache, không mở kết nối Redis nào
+        RedisCacheManager cacheManager = redisConfig.cacheManager(new LettuceConnectionFactory(), objectMapper);
+        messagesSerializer = cacheManager.getCacheConfigurations().get("conversationMessages").getValueSerializationPair();
+        historySerializer = cacheManager.getCacheConfigurations().get("conversationHistory").getValueSerializationPair();
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+        messages = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            messages.add(new ChatMessage("m-" + i, "u-1_u-2", i % 2 == 0 ? "u-1" : "u-2", i % 2 == 0 ? "u-2" : "u-1",
+                    "Tin nhắn số " + i, start.plusSeconds(i), "READ", "text", null));
+        }
+        page = new MessageHistoryPage(messages, "m-0");
+
+        messagesBytes = messagesSerializer.write(messages);
+        pageBytes = historySerializer.write(page);
+
+        Object readPage = historySerializer.read(pageBytes.duplicate());
+        if (!page.equals(readPage)) {
+            throw new IllegalStateException("conversationHistory không đọc lại được MessageHistoryPage: " + readPage);
+        }
+        if (!(messagesSerializer.read(messagesBytes.duplicate()) instanceof List<?> readMessages)
+                || readMessages.size() != pageSize) {
+            throw new IllegalStateException("conversationMessages không đọc lại được danh sách " + pageSize + " tin nhắn");
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer serializeMessageList() {
+        return messagesSerializer.write(messages);
+    }
+
+    @Benchmark
+    public Object deserializeMessageList() {
+        return messagesSerializer.read(messagesBytes.duplicate());
+    }
+
+    @Benchmark
+    public ByteBuffer serializeHistoryPage() {
+        return historySerializer.write(page);
+    }
+
+    @Benchmark
+    public Object deserializeHistoryPage() {
+        return historySerializer.read(pageBytes.duplicate());
+    }
+}
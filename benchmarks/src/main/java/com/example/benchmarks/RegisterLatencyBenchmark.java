@@ -0,0 +1,83 @@
+package com.example.benchmarks;
+
+import com.example.authservice.dto.RegisterRequestDTO;
+import com.example.authservice.service.KeycloakService;
+import com.example.authservice.service.UserIdentityIndex;
+import jakarta.ws.rs.core.Response;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Độ trễ đăng ký khi realm của KeycloakStandIn đã có sẵn tới 100k user: KeycloakService.createUser
+ * (chỉ mục cục bộ, tìm theo email và thuộc tính phoneNumber) so với cách cũ liệt kê toàn bộ realm hai lần
+ * để kiểm tra email và số điện thoại. Cả hai dùng cùng admin client dùng chung.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RegisterLatencyBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int users;
+
+    private KeycloakStandIn keycloak;
+    private Keycloak sharedAdmin;
+    private KeycloakService keycloakService;
+    private long registrations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keycloak = KeycloakStandIn.start(AuthServices.REALM, 0);
+        keycloak.seed(users);
+        sharedAdmin = AuthServices.sharedAdminClient(keycloak);
+        keycloakService = AuthServices.keycloakService(sharedAdmin, new UserIdentityIndex());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sharedAdmin.close();
+        keycloak.close();
+    }
+
+    @Benchmark
+    public int indexedLookups() {
+        try (Response response = keycloakService.createUser(AuthServices.registerRequest(++registrations))) {
+            return created(response);
+        }
+    }
+
+    /**
+     * createUser trước đây: getUsers() (users().list()) một lần cho email và một lần cho số điện thoại
+     */
+    @Benchmark
+    public int fullRealmScans() {
+        RegisterRequestDTO request = AuthServices.registerRequest(++registrations);
+        if (listUsers().stream().anyMatch(user -> user.getEmail().equals(request.getEmail()))
+                || listUsers().stream().anyMatch(user ->
+                        user.getAttributes().get("phoneNumber").contains(request.getPhoneNumber()))) {
+            throw new IllegalStateException("Email hoặc số điện thoại đã tồn tại: " + request.getEmail());
+        }
+        try (Response response = sharedAdmin.realm(AuthServices.REALM).users()
+                .create(AuthServices.userRepresentation(request))) {
+            return created(response);
+        }
+    }
+
+    private List<UserRepresentation> listUsers() {
+        return sharedAdmin.realm(AuthServices.REALM).users().list();
+    }
+
+    private static int created(Response response) {
+        if (response.getStatus() != Response.Status.CREATED.getStatusCode()) {
+            throw new IllegalStateException("Tạo user thất bại: HTTP " + response.getStatus());
+        }
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.chatservice.config;
+
+import com.example.chatservice.service.MessageDeliveryService;
+import com.example.chatservice.service.UserSessionRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Chế độ cụm: mỗi node nghe kênh Redis riêng của nó để nhận tin cho các session nó đang giữ
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean
+    public RedisMessageListenerContainer clusterDeliveryListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                          MessageDeliveryService deliveryService,
+                                                                          UserSessionRegistry sessionRegistry) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(deliveryService,
+                new ChannelTopic(UserSessionRegistry.channelOf(sessionRegistry.getNodeId())));
+        return container;
+    }
+}
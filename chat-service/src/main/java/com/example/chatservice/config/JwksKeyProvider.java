@@ -0,0 +1,101 @@
+package com.example.chatservice.config;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ nhớ đệm JWKS của Keycloak dùng cho xác thực WebSocket.
+ * Khóa được làm mới định kỳ ở nền, và tải lại ngay khi gặp "kid" chưa biết
+ * (có giới hạn tần suất để token giả mạo không thể dội tải lên Keycloak).
+ */
+@Component
+public class JwksKeyProvider {
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyProvider.class);
+
+    private final String jwkSetUri;
+    private final long minRefetchMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "jwks-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Map<String, JWSVerifier> verifiers = Map.of();
+    private volatile long lastFetchMillis;
+
+    public JwksKeyProvider(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${websocket.jwks.refresh-seconds:300}") long refreshSeconds,
+            @Value("${websocket.jwks.min-refetch-millis:10000}") long minRefetchMillis) {
+        this.jwkSetUri = jwkSetUri;
+        this.minRefetchMillis = minRefetchMillis;
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Trả về verifier cho key ID, hoặc null nếu Keycloak không công bố khóa này.
+     */
+    public JWSVerifier getVerifier(String keyId) throws Exception {
+        JWSVerifier verifier = verifiers.get(keyId);
+        if (verifier != null) {
+            return verifier;
+        }
+        // Khóa có thể vừa được xoay vòng: tải lại JWKS rồi thử lại
+        refreshOnMiss();
+        return verifiers.get(keyId);
+    }
+
+    private synchronized void refreshOnMiss() throws Exception {
+        if (lastFetchMillis != 0 && System.currentTimeMillis() - lastFetchMillis < minRefetchMillis) {
+            return;
+        }
+        refresh();
+    }
+
+    private synchronized void refresh() throws Exception {
+        JWKSet jwkSet = JWKSet.load(new URL(jwkSetUri));
+        Map<String, JWSVerifier> loaded = new HashMap<>();
+        for (JWK jwk : jwkSet.getKeys()) {
+            if (jwk instanceof RSAKey rsaKey && jwk.getKeyID() != null) {
+                loaded.put(jwk.getKeyID(), toVerifier(rsaKey));
+            }
+        }
+        verifiers = Map.copyOf(loaded);
+        lastFetchMillis = System.currentTimeMillis();
+        logger.debug("Đã tải JWKS với {} khóa", loaded.size());
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Giữ lại bộ khóa cũ, lần làm mới sau sẽ thử lại
+            logger.warn("Không thể làm mới JWKS: {}", e.getMessage());
+        }
+    }
+
+    private static JWSVerifier toVerifier(RSAKey rsaKey) throws JOSEException {
+        return new RSASSAVerifier(rsaKey.toRSAPublicKey());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        scheduler.shutdown();
+    }
+}
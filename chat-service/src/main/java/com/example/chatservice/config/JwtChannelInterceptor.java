@@ -0,0 +1,201 @@
+package com.example.chatservice.config;
+
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Xác thực các frame STOMP đi vào.
+ * Token chỉ được kiểm tra chữ ký một lần khi CONNECT; principal được lưu theo session
+ * và dùng lại cho các frame SUBSCRIBE/SEND/... sau đó cho đến khi token hết hạn.
+ * Thời điểm hết hạn được giữ lại trong session: sau khi hết hạn, frame phải mang token mới của cùng user
+ * (được xác thực lại và gia hạn session), nếu không sẽ bị từ chối. DISCONNECT luôn được cho qua để
+ * broker dọn subscription và trạng thái của session.
+ */
+public class JwtChannelInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(JwtChannelInterceptor.class);
+
+    static final String SESSION_AUTH_ATTR = "ws.auth";
+    static final String SESSION_AUTH_EXPIRY_ATTR = "ws.auth.exp";
+
+    private static final Set<StompCommand> AUTHENTICATED_COMMANDS = EnumSet.of(
+            StompCommand.CONNECT,
+            StompCommand.SUBSCRIBE,
+            StompCommand.UNSUBSCRIBE,
+            StompCommand.DISCONNECT,
+            StompCommand.SEND
+    );
+
+    private final JwksKeyProvider jwksKeyProvider;
+
+    public JwtChannelInterceptor(JwksKeyProvider jwksKeyProvider) {
+        this.jwksKeyProvider = jwksKeyProvider;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !AUTHENTICATED_COMMANDS.contains(accessor.getCommand())) {
+            return message;
+        }
+
+        String token = accessor.getFirstNativeHeader("Authorization");
+        String userId = accessor.getFirstNativeHeader("X-User-Id");
+
+        // DISCONNECT (kể cả frame tổng hợp khi session đóng) chỉ dọn dẹp, không bao giờ bị chặn
+        if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            Principal sessionUser = resolveSessionUser(accessor);
+            if (sessionUser != null) {
+                accessor.setUser(sessionUser);
+            }
+            return message;
+        }
+
+        // Các frame sau CONNECT dùng lại principal đã xác thực của session
+        if (!StompCommand.CONNECT.equals(accessor.getCommand())) {
+            Principal sessionUser = resolveSessionUser(accessor);
+            if (isSessionExpired(accessor)) {
+                if (token == null || !token.startsWith("Bearer ")) {
+                    logger.warn("Token của session {} đã hết hạn, từ chối frame {}", accessor.getSessionId(), accessor.getCommand());
+                    return null;
+                }
+                // Token mới phải thuộc cùng user của session
+                UsernamePasswordAuthenticationToken auth = authenticate(accessor, token.substring(7),
+                        sessionUser != null ? sessionUser.getName() : userId);
+                if (auth == null) {
+                    return null;
+                }
+                accessor.setUser(auth);
+                return message;
+            }
+            if (sessionUser != null) {
+                accessor.setUser(sessionUser);
+                return message;
+            }
+        }
+
+        if (token != null && token.startsWith("Bearer ")) {
+            UsernamePasswordAuthenticationToken auth = authenticate(accessor, token.substring(7), userId);
+            if (auth == null) {
+                return null;
+            }
+            accessor.setUser(auth);
+            if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+                logger.info("✅ WebSocket xác thực thành công cho người dùng: {}", auth.getName());
+            }
+        } else if (userId != null) {
+            // Dev mode không cần token
+            UsernamePasswordAuthenticationToken auth =
+                    new UsernamePasswordAuthenticationToken(userId, null, Collections.emptyList());
+            accessor.setUser(auth);
+            rememberSessionUser(accessor, auth, null);
+            logger.info("⚠️ WebSocket kết nối chỉ với userId (chế độ dev): {}", userId);
+        } else {
+            logger.warn("❌ Kết nối WebSocket không có xác thực hợp lệ");
+            return null;
+        }
+        return message;
+    }
+
+    /**
+     * Chỉ tin principal do chính interceptor này lưu vào session, không dùng accessor.getUser()
+     */
+    private Principal resolveSessionUser(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        return attributes != null ? (Principal) attributes.get(SESSION_AUTH_ATTR) : null;
+    }
+
+    private boolean isSessionExpired(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Date expiry = attributes != null ? (Date) attributes.get(SESSION_AUTH_EXPIRY_ATTR) : null;
+        return expiry != null && expiry.before(new Date());
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(StompHeaderAccessor accessor, String jwt, String userId) {
+        try {
+            // Parse JWT
+            SignedJWT signedJWT = SignedJWT.parse(jwt);
+
+            // Lấy verifier từ bộ nhớ đệm JWKS thay vì gọi Keycloak mỗi frame
+            String keyId = signedJWT.getHeader().getKeyID();
+            JWSVerifier verifier = jwksKeyProvider.getVerifier(keyId);
+            if (verifier == null) {
+                logger.error("Không tìm thấy JWK với key ID: {}", keyId);
+                return null;
+            }
+
+            // Verify chữ ký
+            if (!signedJWT.verify(verifier)) {
+                logger.warn("Chữ ký JWT không hợp lệ");
+                return null;
+            }
+
+            // Kiểm tra thời gian hết hạn
+            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+            Date exp = claims.getExpirationTime();
+            if (exp != null && exp.before(new Date())) {
+                logger.warn("Token đã hết hạn");
+                return null;
+            }
+
+            String tokenUserId = claims.getSubject();
+            String preferredUsername = claims.getStringClaim("preferred_username");
+            String email = claims.getStringClaim("email");
+
+            if (userId != null && !userId.equals(tokenUserId)) {
+                logger.warn("UserId không khớp: Header: {}, Token: {}", userId, tokenUserId);
+                return null;
+            }
+
+            // Trích xuất roles từ realm_access
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            Map<String, Object> realmAccess = (Map<String, Object>) claims.getClaim("realm_access");
+            if (realmAccess != null && realmAccess.containsKey("roles")) {
+                List<String> roles = (List<String>) realmAccess.get("roles");
+                authorities = roles.stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                        .collect(Collectors.toList());
+            }
+
+            UsernamePasswordAuthenticationToken auth =
+                    new UsernamePasswordAuthenticationToken(tokenUserId, null, authorities);
+            Map<String, Object> details = Map.of(
+                    "preferredUsername", preferredUsername != null ? preferredUsername : "",
+                    "email", email != null ? email : ""
+            );
+            auth.setDetails(details);
+            rememberSessionUser(accessor, auth, exp);
+            return auth;
+        } catch (Exception e) {
+            logger.error("❌ Lỗi xác thực JWT WebSocket: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void rememberSessionUser(StompHeaderAccessor accessor, Principal user, Date expiry) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null) {
+            attributes.put(SESSION_AUTH_ATTR, user);
+            if (expiry != null) {
+                attributes.put(SESSION_AUTH_EXPIRY_ATTR, expiry);
+            } else {
+                attributes.remove(SESSION_AUTH_EXPIRY_ATTR);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.chatservice.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import com.example.chatservice.dto.ConversationMembershipEvent;
+import com.example.chatservice.kafka.MessageProducer;
 import com.example.chatservice.model.ChatMessage;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -40,13 +42,19 @@ public class KafkaConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic conversationMembershipTopic() {
+        // Compacted: mỗi nhóm chỉ giữ bản thành viên mới nhất, consumer có thể đọc lại từ đầu để dựng trạng thái
+        return TopicBuilder.name(MessageProducer.MEMBERSHIP_TOPIC)
+                .partitions(10)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
     @Bean
     public ProducerFactory<String, ChatMessage> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        return new DefaultKafkaProducerFactory<>(producerConfigs());
     }
 
     @Bean
@@ -54,6 +62,22 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    @Bean
+    public KafkaTemplate<String, ConversationMembershipEvent> membershipKafkaTemplate() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerConfigs()));
+    }
+
+    private Map<String, Object> producerConfigs() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        // Gom tin nhắn thành batch và giới hạn thời gian send() có thể chặn khi chờ metadata
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 2000);
+        return configProps;
+    }
+
 
     @Bean
     public ConsumerFactory<String, ChatMessage> consumerFactory() {
@@ -74,4 +98,21 @@ public class KafkaConfig {
         return factory;
     }
 
-}
\ No newline at end of file
+    /**
+     * Consumer cho việc xóa ConversationCache: chỉ đọc các thay đổi từ lúc khởi động (latest), value giữ dạng chuỗi
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> membershipInvalidationContainerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        return factory;
+    }
+
+}
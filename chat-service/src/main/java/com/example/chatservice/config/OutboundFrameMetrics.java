@@ -0,0 +1,45 @@
+package com.example.chatservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+/**
+ * Đếm frame MESSAGE gửi tới từng session (metric "chat.websocket.frames.out", tag destination = user|group|other).
+ * So với "chat.deliveries" cho biết mỗi tin được đẩy đúng một lần cho mỗi session người nhận.
+ */
+public class OutboundFrameMetrics implements ChannelInterceptor {
+
+    private final Counter userFrames;
+    private final Counter groupFrames;
+    private final Counter otherFrames;
+
+    public OutboundFrameMetrics(MeterRegistry meterRegistry) {
+        this.userFrames = meterRegistry.counter("chat.websocket.frames.out", "destination", "user");
+        this.groupFrames = meterRegistry.counter("chat.websocket.frames.out", "destination", "group");
+        this.otherFrames = meterRegistry.counter("chat.websocket.frames.out", "destination", "other");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            otherFrames.increment();
+        } else if (destination.startsWith("/topic/group/")) {
+            groupFrames.increment();
+        } else if (destination.startsWith("/queue/messages") || destination.startsWith("/user/")) {
+            // Đích của user destination đã được đổi thành /queue/messages-user{sessionId}
+            userFrames.increment();
+        } else {
+            otherFrames.increment();
+        }
+        return message;
+    }
+}
@@ -1,25 +1,37 @@
 package com.example.chatservice.config;
 
+import com.example.chatservice.dto.MessageHistoryPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
+    public static final Duration CACHE_TTL = Duration.ofHours(1);
+
+    public static final Set<String> CACHE_NAMES = Set.of(
+            "conversationMessages", "conversationHistory", "recentMessages", "userConversations", "groupConversations");
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -33,15 +45,44 @@ public class RedisConfig {
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
 
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(1))
+                .entryTtl(CACHE_TTL)
                 .serializeValuesWith(RedisSerializationContext.SerializationPair
                         .fromSerializer(jsonSerializer));
 
+        // Serializer mặc định không ghi thông tin kiểu, giá trị đọc lại là LinkedHashMap.
+        // Cache trả về một kiểu cụ thể (không phải List) cần serializer có kiểu riêng.
+        RedisCacheConfiguration historyConfig = cacheConfig.serializeValuesWith(RedisSerializationContext.SerializationPair
+                .fromSerializer(new Jackson2JsonRedisSerializer<>(objectMapper, MessageHistoryPage.class)));
+
+        // initialCacheNames gán cấu hình mặc định cho mọi tên, nên cấu hình riêng phải đặt sau nó
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(cacheConfig)
+                .initialCacheNames(CACHE_NAMES)
+                .withCacheConfiguration("conversationHistory", historyConfig)
+                .enableStatistics()
                 .build();
     }
 
+    /**
+     * Tỉ lệ cache hit theo từng tên cache (metric "cache.hit.ratio"), bên cạnh "cache.gets" của actuator
+     */
+    @Bean
+    public MeterBinder cacheHitRatioMetrics(RedisCacheManager cacheManager) {
+        return registry -> CACHE_NAMES.forEach(name ->
+                Gauge.builder("cache.hit.ratio", cacheManager, manager -> hitRatio(manager, name))
+                        .tag("cache", name)
+                        .register(registry));
+    }
+
+    private static double hitRatio(RedisCacheManager cacheManager, String name) {
+        if (!(cacheManager.getCache(name) instanceof RedisCache cache)) {
+            return 0;
+        }
+        CacheStatistics stats = cache.getStatistics();
+        long lookups = stats.getHits() + stats.getMisses();
+        return lookups == 0 ? 0 : (double) stats.getHits() / lookups;
+    }
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, ObjectMapper objectMapper) {
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
@@ -31,7 +31,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                     .requestMatchers(
                         "/ws", "/ws/**", "/ws/info", "/ws/info/**", // Thêm các endpoint SockJS handshake
-                        "/app/**", "/topic/**", "/queue/**", "/user/**","/app/ping"
+                        "/app/**", "/topic/**", "/queue/**", "/user/**","/app/ping",
+                        "/actuator/health", "/actuator/health/**"
                     ).permitAll()
                     .anyRequest().authenticated()
                 )
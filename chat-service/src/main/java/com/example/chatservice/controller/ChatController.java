@@ -1,22 +1,34 @@
 package com.example.chatservice.controller;
 
+import com.example.chatservice.dto.ConversationMembershipEvent;
+import com.example.chatservice.dto.MessageHistoryPage;
 import com.example.chatservice.model.ChatMessage;
 import com.example.chatservice.service.ChatService;
+import com.example.chatservice.service.ConversationCache;
+import com.example.chatservice.service.ReadReceiptService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/")
 public class ChatController {
     private final ChatService chatService;
+    private final ReadReceiptService readReceiptService;
+    private final ConversationCache conversationCache;
 
     @Autowired
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, ReadReceiptService readReceiptService,
+                          ConversationCache conversationCache) {
         this.chatService = chatService;
+        this.readReceiptService = readReceiptService;
+        this.conversationCache = conversationCache;
     }
 
     @PostMapping("/messages")
@@ -33,6 +45,14 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getMessagesByConversationId(conversationId, page, size));
     }
 
+    @GetMapping("/messages/{conversationId}/history")
+    public ResponseEntity<MessageHistoryPage> getMessageHistory(
+            @PathVariable String conversationId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(chatService.getMessageHistory(conversationId, before, size));
+    }
+
     @GetMapping("/recent/{userId}")
     public ResponseEntity<List<ChatMessage>> getRecentMessages(
             @PathVariable String userId,
@@ -64,4 +84,36 @@ public class ChatController {
         return ResponseEntity.ok().build();
     }
 
-}
\ No newline at end of file
+    // Xác nhận đã đọc hàng loạt: đọc tới tin nhắn upTo (mặc định là tin mới nhất) trong một lệnh updateMany
+    @PutMapping("/conversations/{conversationId}/read")
+    public ResponseEntity<?> markConversationRead(
+            @PathVariable String conversationId,
+            @RequestParam(required = false) String upTo,
+            Principal principal) {
+        if (!isParticipant(conversationId, principal)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        readReceiptService.markConversationRead(principal.getName(), conversationId, upTo);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/conversations/{conversationId}/unread-count")
+    public ResponseEntity<Long> getUnreadCount(@PathVariable String conversationId, Principal principal) {
+        if (!isParticipant(conversationId, principal)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(readReceiptService.getUnreadCount(principal.getName(), conversationId));
+    }
+
+    @GetMapping("/unread-counts")
+    public ResponseEntity<Map<String, Long>> getUnreadCounts(Principal principal) {
+        return ResponseEntity.ok(readReceiptService.getUnreadCounts(principal.getName()));
+    }
+
+    // Thành viên đọc từ ConversationCache (bộ nhớ cục bộ), không thêm lần đọc Mongo cho mỗi request
+    private boolean isParticipant(String conversationId, Principal principal) {
+        ConversationMembershipEvent conversation = conversationCache.get(conversationId);
+        return conversation != null && conversation.getParticipants().contains(principal.getName());
+    }
+
+}
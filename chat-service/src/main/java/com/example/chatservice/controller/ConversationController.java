@@ -1,8 +1,10 @@
 package com.example.chatservice.controller;
 
+import com.example.chatservice.dto.InboxPage;
 import com.example.chatservice.dto.MembersRequest;
 import com.example.chatservice.model.Conversation;
 import com.example.chatservice.service.ChatService;
+import com.example.chatservice.service.InboxService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,12 +19,24 @@ import java.util.Map;
 public class ConversationController {
 
     private final ChatService chatService;
+    private final InboxService inboxService;
 
     @GetMapping("/conversations")
     public ResponseEntity<List<Conversation>> getUserConversations(Principal principal) {
         return ResponseEntity.ok(chatService.getUserConversations(principal.getName()));
     }
 
+    /**
+     * Hộp thư theo hoạt động gần nhất, kèm tin nhắn cuối và số tin chưa đọc, phân trang theo con trỏ
+     */
+    @GetMapping("/conversations/inbox")
+    public ResponseEntity<InboxPage> getInbox(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal) {
+        return ResponseEntity.ok(inboxService.getInbox(principal.getName(), cursor, size));
+    }
+
     @GetMapping("/conversations/group")
     public ResponseEntity<List<Conversation>> getGroupConversations(Principal principal) {
         return ResponseEntity.ok(chatService.getGroupConversations(principal.getName()));
@@ -7,7 +7,6 @@ import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
@@ -18,7 +17,6 @@ import java.security.Principal;
 public class WebSocketChatController {
 
     private final ChatService chatService;
-    private final SimpMessagingTemplate messagingTemplate;
 
     // Xử lý tin nhắn 1-1
     @MessageMapping("/chat.private.{receiverId}")
@@ -28,9 +26,8 @@ public class WebSocketChatController {
         chatMessage.setSenderId(principal.getName());
         chatMessage.setReceiverId(receiverId);
 
-        // ChatService sẽ lưu và phân phối tin nhắn qua Kafka
+        // ChatService lưu và phát lên Kafka; MessageConsumer là đường giao WebSocket duy nhất
         chatService.savePrivateMessage(chatMessage);
-        messagingTemplate.convertAndSendToUser(receiverId, "/queue/messages", chatMessage);
     }
 
     // Xử lý tin nhắn nhóm
@@ -41,9 +38,8 @@ public class WebSocketChatController {
         chatMessage.setSenderId(principal.getName());
         chatMessage.setConversationId(conversationId);
 
-        // ChatService sẽ lưu và phân phối tin nhắn qua Kafka
+        // ChatService lưu và phát lên Kafka; MessageConsumer là đường giao WebSocket duy nhất
         chatService.saveGroupMessage(chatMessage);
-        messagingTemplate.convertAndSend("/topic/group/" + conversationId, chatMessage);
     }
     /**
      * Xử lý ping từ client để giữ kết nối
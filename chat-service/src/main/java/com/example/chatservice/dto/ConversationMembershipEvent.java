@@ -0,0 +1,27 @@
+package com.example.chatservice.dto;
+
+import com.example.chatservice.model.Conversation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Trạng thái thành viên hiện tại của một nhóm chat, gửi lên topic compacted "conversation-membership"
+ * với key là conversationId. Nhóm bị xóa được gửi dưới dạng tombstone (value null).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationMembershipEvent {
+    private String conversationId;
+    private String name;
+    private String type;
+    private List<String> participants;
+
+    public static ConversationMembershipEvent from(Conversation conversation) {
+        return new ConversationMembershipEvent(conversation.getId(), conversation.getName(),
+                conversation.getType(), List.copyOf(conversation.getParticipants()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.chatservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tin nhắn được chuyển giữa các node chat-service qua kênh Redis của node đích (chế độ cụm)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryEnvelope {
+    public static final String USER = "USER";
+    public static final String GROUP = "GROUP";
+
+    private String type;      // USER: target là userId, GROUP: target là conversationId
+    private String target;
+    private String messageId;
+    private String payload;   // JSON của ChatMessage, chỉ serialize một lần ở node gửi
+
+    public static DeliveryEnvelope toUser(String userId, String messageId, String payload) {
+        return new DeliveryEnvelope(USER, userId, messageId, payload);
+    }
+
+    public static DeliveryEnvelope toGroup(String conversationId, String messageId, String payload) {
+        return new DeliveryEnvelope(GROUP, conversationId, messageId, payload);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.chatservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxEntry {
+    private String conversationId;
+    private String name;
+    private String type; // ONE_TO_ONE, GROUP
+    private List<String> participants;
+    private LocalDateTime lastActivity;
+    private String lastMessageId;
+    private String lastMessageContent; // bản xem trước, đã cắt ngắn
+    private String lastMessageSenderId;
+    private long unreadCount;
+}
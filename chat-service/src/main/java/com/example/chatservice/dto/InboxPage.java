@@ -0,0 +1,15 @@
+package com.example.chatservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxPage {
+    private List<InboxEntry> conversations; // hoạt động gần nhất trước
+    private String nextCursor;              // truyền vào "cursor" để lấy trang tiếp theo, null nếu đã hết
+}
@@ -0,0 +1,16 @@
+package com.example.chatservice.dto;
+
+import com.example.chatservice.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageHistoryPage {
+    private List<ChatMessage> messages; // từ cũ đến mới
+    private String nextCursor;          // truyền vào "before" để lấy trang cũ hơn, null nếu đã hết
+}
@@ -1,13 +1,12 @@
 package com.example.chatservice.kafka;
 
 import com.example.chatservice.model.ChatMessage;
-import com.example.chatservice.model.Conversation;
-import com.example.chatservice.repository.ConversationRepository;
-import com.example.chatservice.service.ChatService;
+import com.example.chatservice.dto.ConversationMembershipEvent;
+import com.example.chatservice.service.ConversationCache;
+import com.example.chatservice.service.MessageDeliveryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -15,19 +14,15 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class MessageConsumer {
 
-    private final SimpMessagingTemplate messagingTemplate;
-    private final ConversationRepository conversationRepository;
+    private final MessageDeliveryService deliveryService;
+    private final ConversationCache conversationCache;
 
     @KafkaListener(topics = "private-messages", containerFactory = "kafkaListenerContainerFactory")
     public void consumePrivateMessage(ChatMessage message) {
         log.info("Received private message: {}", message);
 
         // Gửi tin nhắn đến người nhận qua WebSocket
-        messagingTemplate.convertAndSendToUser(
-                message.getReceiverId(),
-                "/queue/messages",
-                message
-        );
+        deliveryService.deliverToUser(message.getReceiverId(), message);
     }
 
     @KafkaListener(topics = "group-messages", containerFactory = "kafkaListenerContainerFactory")
@@ -35,15 +30,11 @@ public class MessageConsumer {
         log.info("Received group message: {}", message);
 
         // Tìm cuộc trò chuyện nhóm
-        Conversation conversation = conversationRepository.findById(message.getConversationId())
-                .orElse(null);
+        ConversationMembershipEvent conversation = conversationCache.get(message.getConversationId());
 
         if (conversation != null) {
             // Gửi tin nhắn đến tất cả thành viên trong nhóm qua WebSocket
-            messagingTemplate.convertAndSend(
-                    "/topic/group/" + message.getConversationId(),
-                    message
-            );
+            deliveryService.deliverToGroup(conversation.getConversationId(), conversation.getParticipants(), message);
         }
     }
 }
\ No newline at end of file
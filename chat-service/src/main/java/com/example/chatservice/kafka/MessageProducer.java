@@ -1,21 +1,58 @@
 package com.example.chatservice.kafka;
 
+import com.example.chatservice.dto.ConversationMembershipEvent;
 import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.model.Conversation;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class MessageProducer {
 
+    public static final String MEMBERSHIP_TOPIC = "conversation-membership";
+
     private final KafkaTemplate<String, ChatMessage> kafkaTemplate;
+    private final KafkaTemplate<String, ConversationMembershipEvent> membershipKafkaTemplate;
 
+    // send() trả về ngay, kết quả được xử lý ở callback để không giữ luồng request
     public void sendPrivateMessage(ChatMessage message) {
-        kafkaTemplate.send("private-messages", message.getReceiverId(), message);
+        send("private-messages", message.getReceiverId(), message);
     }
 
     public void sendGroupMessage(ChatMessage message) {
-        kafkaTemplate.send("group-messages", message.getConversationId(), message);
+        send("group-messages", message.getConversationId(), message);
+    }
+
+    /**
+     * Gửi danh sách thành viên mới nhất của nhóm; topic compacted chỉ giữ bản cuối cùng theo conversationId
+     */
+    public void sendMembershipChanged(Conversation conversation) {
+        sendMembership(conversation.getId(), ConversationMembershipEvent.from(conversation));
+    }
+
+    public void sendMembershipRemoved(String conversationId) {
+        sendMembership(conversationId, null);
+    }
+
+    private void sendMembership(String conversationId, ConversationMembershipEvent event) {
+        membershipKafkaTemplate.send(MEMBERSHIP_TOPIC, conversationId, event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Không thể gửi thành viên nhóm {}: {}", conversationId, ex.getMessage());
+                    }
+                });
+    }
+
+    private void send(String topic, String key, ChatMessage message) {
+        kafkaTemplate.send(topic, key, message)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Không thể gửi tin nhắn {} tới topic {}: {}", message.getId(), topic, ex.getMessage());
+                    }
+                });
     }
-}
\ No newline at end of file
+}
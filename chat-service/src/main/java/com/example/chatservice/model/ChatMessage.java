@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -13,6 +14,7 @@ import java.util.UUID;
 @Data
 @AllArgsConstructor
 @Document(collection = "chat_message")
+@CompoundIndex(name = "conversation_timestamp_id", def = "{ 'conversationId': 1, 'timestamp': 1, '_id': 1 }")
 @NoArgsConstructor
 public class ChatMessage {
     @Id
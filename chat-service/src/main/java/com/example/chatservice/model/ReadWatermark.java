@@ -0,0 +1,33 @@
+package com.example.chatservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mốc "đã đọc tới" của một người dùng trong một cuộc trò chuyện: mọi tin nhắn có (timestamp, _id)
+ * không lớn hơn (readUpTo, readUpToMessageId) được coi là đã đọc.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "read_watermarks")
+@CompoundIndex(name = "user_conversation", def = "{ 'userId': 1, 'conversationId': 1 }")
+public class ReadWatermark {
+    @Id
+    private String id; // conversationId + ":" + userId
+    private String userId;
+    private String conversationId;
+    private LocalDateTime readUpTo;
+    private String readUpToMessageId;
+    private LocalDateTime updatedAt;
+
+    public static String idOf(String conversationId, String userId) {
+        return conversationId + ":" + userId;
+    }
+}
@@ -3,18 +3,43 @@ package com.example.chatservice.repository;
 import com.example.chatservice.model.ChatMessage;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatMessageRepository extends MongoRepository<ChatMessage, String> {
     List<ChatMessage> findByConversationIdOrderByTimestampAsc(String conversationId);
     List<ChatMessage> findByReceiverIdAndStatus(String receiverId, String status);
-    List<ChatMessage> findByConversationIdAndSenderIdAndReceiverIdAndStatus(String conversationId, String senderId, String receiverId, String status);
     List<ChatMessage> findByConversationIdInOrderByTimestampDesc(List<String> conversationIds, Pageable pageable);
     List<ChatMessage> findByConversationIdOrderByTimestampDesc(String conversationId, Pageable pageable);
 
+    // Keyset pagination: các tin nhắn cũ hơn con trỏ (timestamp, _id), dùng index conversation_timestamp_id
+    @Query(value = "{ 'conversationId': ?0, $or: [ { 'timestamp': { $lt: ?1 } }, { 'timestamp': ?1, '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<ChatMessage> findByConversationIdBefore(String conversationId, LocalDateTime timestamp, String id, Pageable pageable);
+
+    // Tin nhắn mới nhất của cuộc trò chuyện, dùng làm mốc khi đánh dấu đọc hết
+    Optional<ChatMessage> findFirstByConversationIdOrderByTimestampDescIdDesc(String conversationId);
+
+    // Một lệnh updateMany: mọi tin chưa đọc gửi tới người nhận, tới hết mốc thời gian.
+    // Chỉ dùng cho chat 1-1: tin nhóm không gắn với một receiverId, nhóm dùng mốc đã đọc (ReadWatermark)
+    @Query("{ 'conversationId': ?0, 'receiverId': ?1, 'status': 'UNREAD', 'timestamp': { $lte: ?2 } }")
+    @Update("{ '$set': { 'status': 'READ' } }")
+    long markReadUpTo(String conversationId, String receiverId, LocalDateTime upTo);
+
+    // Số tin nhắn của người khác mới hơn mốc đã đọc (timestamp, _id), dùng index conversation_timestamp_id
+    @Query(value = "{ 'conversationId': ?0, 'senderId': { $ne: ?1 }, $or: [ { 'timestamp': { $gt: ?2 } }, { 'timestamp': ?2, '_id': { $gt: ?3 } } ] }",
+            count = true)
+    long countUnreadAfter(String conversationId, String userId, LocalDateTime timestamp, String id);
+
+    @Query(value = "{ 'conversationId': ?0, 'senderId': { $ne: ?1 } }", count = true)
+    long countFromOthers(String conversationId, String userId);
+
     //deleteByConversationId
     void deleteByConversationId(String conversationId);
 
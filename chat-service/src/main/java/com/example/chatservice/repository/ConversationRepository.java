@@ -3,8 +3,10 @@ package com.example.chatservice.repository;
 import com.example.chatservice.model.Conversation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +16,16 @@ public interface ConversationRepository extends MongoRepository<Conversation, St
 
     List<Conversation> findByParticipantsContainingAndType(String userId, String type);
 
+    List<Conversation> findByType(String type);
+
     // Thay thế phương thức hiện tại với một truy vấn tùy chỉnh
     @Query("{ 'type': ?0, 'participants': { $all: [?1, ?2] } }")
     Optional<Conversation> findByTypeAndBothParticipants(String type, String participant1, String participant2);
 
+    // Chỉ $set các trường tin nhắn cuối thay vì ghi lại toàn bộ document
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'lastActivity': ?1, 'lastMessageId': ?2, 'lastMessageContent': ?3, 'lastMessageSenderId': ?4 } }")
+    long updateLastMessage(String conversationId, LocalDateTime lastActivity, String lastMessageId,
+                           String lastMessageContent, String lastMessageSenderId);
 
 }
\ No newline at end of file
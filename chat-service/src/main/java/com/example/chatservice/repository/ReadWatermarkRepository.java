@@ -0,0 +1,12 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.model.ReadWatermark;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReadWatermarkRepository extends MongoRepository<ReadWatermark, String> {
+    List<ReadWatermark> findByUserId(String userId);
+}
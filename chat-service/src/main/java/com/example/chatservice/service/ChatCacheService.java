@@ -0,0 +1,71 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.config.RedisConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Vô hiệu hóa cache theo từng cuộc trò chuyện / từng người dùng thay vì xóa toàn bộ cache.
+ */
+@Service("chatCacheService")
+@RequiredArgsConstructor
+public class ChatCacheService {
+
+    private static final String MESSAGES_VERSION_KEY = "cache_version:conversationMessages:";
+    // Dài hơn TTL của cache: khóa phiên bản chỉ hết hạn khi mọi trang gắn với nó đã hết hạn trước,
+    // nên phiên bản bắt đầu lại từ 0 không thể trùng với một trang cũ còn sống
+    static final Duration VERSION_TTL = RedisConfig.CACHE_TTL.multipliedBy(2);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Phiên bản hiện tại của cache tin nhắn một cuộc trò chuyện, được đưa vào khóa của
+     * "conversationMessages" và "conversationHistory" để mọi trang cũ tự hết hiệu lực khi có tin nhắn mới.
+     */
+    public long messagesVersion(String conversationId) {
+        // GETEX: mỗi lần đọc (trước khi một trang được cache) cũng gia hạn khóa phiên bản
+        String version = stringRedisTemplate.opsForValue().getAndExpire(MESSAGES_VERSION_KEY + conversationId, VERSION_TTL);
+        return version != null ? Long.parseLong(version) : 0;
+    }
+
+    public void evictConversationMessages(String conversationId) {
+        byte[] key = (MESSAGES_VERSION_KEY + conversationId).getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().incr(key);
+            connection.keyCommands().expire(key, VERSION_TTL.toSeconds());
+            return null;
+        });
+    }
+
+    /**
+     * Xóa danh sách cuộc trò chuyện đã cache của các người dùng liên quan (một lệnh DEL)
+     */
+    public void evictUserConversations(Collection<String> userIds) {
+        evict("userConversations", userIds);
+    }
+
+    public void evictGroupConversations(Collection<String> userIds) {
+        evict("groupConversations", userIds);
+    }
+
+    private void evict(String cacheName, Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        String prefix = CacheKeyPrefix.simple().compute(cacheName);
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            redisKeys.add(prefix + key);
+        }
+        stringRedisTemplate.delete(redisKeys);
+    }
+}
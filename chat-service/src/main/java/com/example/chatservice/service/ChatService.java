@@ -1,31 +1,58 @@
 package com.example.chatservice.service;
 
+import com.example.chatservice.dto.ConversationMembershipEvent;
+import com.example.chatservice.dto.MessageHistoryPage;
 import com.example.chatservice.kafka.MessageProducer;
 import com.example.chatservice.model.ChatMessage;
 import com.example.chatservice.model.Conversation;
 import com.example.chatservice.repository.ChatMessageRepository;
 import com.example.chatservice.repository.ConversationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ChatService {
 
+    static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final ChatMessageRepository chatMessageRepository;
     private final ConversationRepository conversationRepository;
     private final MessageProducer messageProducer;
+    private final ChatCacheService chatCacheService;
+    private final ConversationCache conversationCache;
+    private final ReadReceiptService readReceiptService;
+    private final UnreadCounterService unreadCounterService;
+    private final InboxService inboxService;
+    // conversationId của cuộc trò chuyện 1-1 theo cặp người dùng, tránh truy vấn $all mỗi tin nhắn
+    private final Cache<String, String> privateConversationIds = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    @Value("${chat.membership.republish-on-startup:false}")
+    private boolean republishMembershipOnStartup;
 
     /**
      * Xử lý gửi tin nhắn từ REST API
@@ -43,14 +70,15 @@ public class ChatService {
      * Lấy tin nhắn giữa hai người dùng
      */
     public List<ChatMessage> getConversationMessages(String userId1, String userId2) {
-        String conversationId = generateConversationId(userId1, userId2);
+        String conversationId = findPrivateConversationId(userId1, userId2);
         return chatMessageRepository.findByConversationIdOrderByTimestampAsc(conversationId);
     }
 
     /**
      * Lấy tin nhắn theo ID cuộc hội thoại
      */
-    @Cacheable(value = "conversationMessages", key = "#conversationId + '-' + #page + '-' + #size")
+    @Cacheable(value = "conversationMessages",
+            key = "#conversationId + '-v' + @chatCacheService.messagesVersion(#conversationId) + '-' + #page + '-' + #size")
     public List<ChatMessage> getMessagesByConversationId(String conversationId, int page, int size) {
         List<ChatMessage> messages = chatMessageRepository.findByConversationIdOrderByTimestampDesc(
                 conversationId,
@@ -61,6 +89,59 @@ public class ChatService {
         return messages;
     }
 
+    /**
+     * Lấy lịch sử tin nhắn theo con trỏ (timestamp, id) thay vì skip/limit,
+     * nên độ trễ không phụ thuộc vào độ sâu khi cuộn và kết quả không bị lệch khi có tin nhắn mới.
+     * Chỉ trang mới nhất (before == null) được cache. Kích thước trang ngoài 1..MAX_HISTORY_PAGE_SIZE bị từ chối với 400.
+     */
+    @Cacheable(value = "conversationHistory",
+            key = "#conversationId + '-v' + @chatCacheService.messagesVersion(#conversationId) + '-' + #size",
+            condition = "#before == null")
+    public MessageHistoryPage getMessageHistory(String conversationId, String before, int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Kích thước trang phải từ 1 đến " + MAX_HISTORY_PAGE_SIZE);
+        }
+        PageRequest limit = PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "timestamp", "id"));
+        List<ChatMessage> messages;
+        if (before == null) {
+            messages = chatMessageRepository.findByConversationIdOrderByTimestampDesc(conversationId, limit);
+        } else {
+            String[] cursor = decodeCursor(before);
+            messages = chatMessageRepository.findByConversationIdBefore(
+                    conversationId, LocalDateTime.parse(cursor[0]), cursor[1], PageRequest.of(0, size));
+        }
+
+        String nextCursor = null;
+        if (messages.size() == size) {
+            ChatMessage oldest = messages.get(messages.size() - 1);
+            nextCursor = encodeCursor(oldest.getTimestamp(), oldest.getId());
+        }
+        // Đảo ngược để hiển thị từ cũ đến mới
+        messages = new ArrayList<>(messages);
+        Collections.reverse(messages);
+        return new MessageHistoryPage(messages, nextCursor);
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, String id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(raw);
+            }
+            LocalDateTime.parse(parts[0]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Con trỏ phân trang không hợp lệ");
+        }
+    }
+
     /**
      * Lấy tin nhắn gần đây của người dùng
      */
@@ -88,63 +169,112 @@ public class ChatService {
     /**
      * Lưu tin nhắn cá nhân và gửi qua Kafka
      */
-    @CacheEvict(value = { "conversationMessages", "userConversations" }, allEntries = true)
     @Transactional
     public ChatMessage savePrivateMessage(ChatMessage chatMessage) {
-        String type = "ONE_TO_ONE";
-        String senderId = chatMessage.getSenderId();
-        String receiverId = chatMessage.getReceiverId();
-
-        Conversation conversation = conversationRepository
-                .findByTypeAndBothParticipants(type, senderId, receiverId)
-                .orElseGet(() -> {
-                    Conversation newConversation = new Conversation();
-                    newConversation.setType(type);
-                    newConversation.setParticipants(Arrays.asList(senderId, receiverId));
-                    newConversation.setCreatorId(senderId);
-                    newConversation.onCreate();
-                    return conversationRepository.save(newConversation);
-                });
-
-        chatMessage.setConversationId(conversation.getId());
-        chatMessage.setTimestamp(LocalDateTime.now());
+        String conversationId = resolvePrivateConversationId(chatMessage.getSenderId(), chatMessage.getReceiverId());
+
+        LocalDateTime now = LocalDateTime.now();
+        chatMessage.setConversationId(conversationId);
+        chatMessage.setTimestamp(now);
         chatMessage.setStatus("UNREAD");
         ChatMessage savedMessage = chatMessageRepository.save(chatMessage);
 
-        conversation.setLastActivity(LocalDateTime.now());
-        conversation.setLastMessageId(savedMessage.getId());
-        conversation.setLastMessageContent(savedMessage.getContent());
-        conversation.setLastMessageSenderId(savedMessage.getSenderId());
-        conversationRepository.save(conversation);
+        conversationRepository.updateLastMessage(conversationId, now, savedMessage.getId(),
+                savedMessage.getContent(), savedMessage.getSenderId());
+
+        chatCacheService.evictConversationMessages(conversationId);
+        chatCacheService.evictUserConversations(List.of(savedMessage.getSenderId(), savedMessage.getReceiverId()));
+        unreadCounterService.increment(conversationId, List.of(savedMessage.getReceiverId()));
+        inboxService.recordMessage(conversationId, null, "ONE_TO_ONE",
+                List.of(savedMessage.getSenderId(), savedMessage.getReceiverId()), savedMessage);
 
         messageProducer.sendPrivateMessage(savedMessage);
 
         return savedMessage;
     }
 
+    /**
+     * Tìm (hoặc tạo) cuộc trò chuyện 1-1, ưu tiên chỉ mục trong bộ nhớ.
+     * Cuộc trò chuyện 1-1 mới dùng khóa chuẩn generateConversationId làm _id nên tra cứu là một lần đọc theo khóa.
+     */
+    private String resolvePrivateConversationId(String senderId, String receiverId) {
+        return privateConversationIds.get(generateConversationId(senderId, receiverId), pairKey ->
+                lookupPrivateConversationId(pairKey, senderId, receiverId)
+                        .orElseGet(() -> createPrivateConversation(pairKey, senderId, receiverId)));
+    }
+
+    /**
+     * Chỉ tra cứu, không tạo mới: trả về khóa chuẩn nếu chưa có cuộc trò chuyện nào
+     */
+    private String findPrivateConversationId(String userId1, String userId2) {
+        String pairKey = generateConversationId(userId1, userId2);
+        String cached = privateConversationIds.getIfPresent(pairKey);
+        if (cached != null) {
+            return cached;
+        }
+        return lookupPrivateConversationId(pairKey, userId1, userId2)
+                .map(conversationId -> {
+                    privateConversationIds.put(pairKey, conversationId);
+                    return conversationId;
+                })
+                .orElse(pairKey);
+    }
+
+    private Optional<String> lookupPrivateConversationId(String pairKey, String userId1, String userId2) {
+        if (conversationRepository.existsById(pairKey)) {
+            return Optional.of(pairKey);
+        }
+        // Cuộc trò chuyện cũ được tạo với UUID trước khi dùng khóa chuẩn
+        return conversationRepository.findByTypeAndBothParticipants("ONE_TO_ONE", userId1, userId2)
+                .map(Conversation::getId);
+    }
+
+    private String createPrivateConversation(String pairKey, String senderId, String receiverId) {
+        Conversation newConversation = new Conversation();
+        newConversation.setId(pairKey);
+        newConversation.setType("ONE_TO_ONE");
+        newConversation.setParticipants(Arrays.asList(senderId, receiverId));
+        newConversation.setCreatorId(senderId);
+        newConversation.onCreate();
+        try {
+            conversationRepository.insert(newConversation);
+        } catch (DuplicateKeyException e) {
+            // Instance khác vừa tạo cùng cuộc trò chuyện, _id duy nhất đảm bảo chỉ có một bản ghi
+        }
+        return pairKey;
+    }
+
     /**
      * Lưu tin nhắn nhóm và gửi qua Kafka
      */
-    @CacheEvict(value = { "conversationMessages", "userConversations" }, allEntries = true)
     @Transactional
     public ChatMessage saveGroupMessage(ChatMessage chatMessage) {
         String conversationId = chatMessage.getConversationId();
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy nhóm chat"));
+        // Thành viên lấy từ bộ nhớ cục bộ, không đọc Mongo cho mỗi tin nhắn
+        ConversationMembershipEvent conversation = conversationCache.get(conversationId);
+        if (conversation == null) {
+            throw new RuntimeException("Không tìm thấy nhóm chat");
+        }
 
         if (!conversation.getParticipants().contains(chatMessage.getSenderId())) {
             throw new RuntimeException("Người dùng không thuộc nhóm chat này");
         }
 
-        chatMessage.setTimestamp(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        chatMessage.setTimestamp(now);
         chatMessage.setStatus("UNREAD");
         ChatMessage savedMessage = chatMessageRepository.save(chatMessage);
 
-        conversation.setLastActivity(LocalDateTime.now());
-        conversation.setLastMessageId(savedMessage.getId());
-        conversation.setLastMessageContent(savedMessage.getContent());
-        conversation.setLastMessageSenderId(savedMessage.getSenderId());
-        conversationRepository.save(conversation);
+        conversationRepository.updateLastMessage(conversationId, now, savedMessage.getId(),
+                savedMessage.getContent(), savedMessage.getSenderId());
+
+        chatCacheService.evictConversationMessages(conversationId);
+        chatCacheService.evictUserConversations(conversation.getParticipants());
+        List<String> recipients = new ArrayList<>(conversation.getParticipants());
+        recipients.remove(savedMessage.getSenderId());
+        unreadCounterService.increment(conversationId, recipients);
+        inboxService.recordMessage(conversationId, conversation.getName(), conversation.getType(),
+                conversation.getParticipants(), savedMessage);
 
         messageProducer.sendGroupMessage(savedMessage);
 
@@ -155,22 +285,15 @@ public class ChatService {
      * Đánh dấu một tin nhắn đã đọc
      */
     public ChatMessage markAsRead(String messageId) {
-        ChatMessage message = chatMessageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy tin nhắn"));
-        message.setStatus("READ");
-        return chatMessageRepository.save(message);
+        return readReceiptService.markMessageRead(messageId);
     }
 
     /**
-     * Đánh dấu tất cả tin nhắn giữa 2 người đã đọc
+     * Đánh dấu tất cả tin nhắn giữa 2 người đã đọc (người nhận đã đọc tới tin mới nhất)
      */
     public void markAllMessagesAsRead(String senderId, String receiverId) {
-        String conversationId = generateConversationId(senderId, receiverId);
-        List<ChatMessage> unreadMessages = chatMessageRepository.findByConversationIdAndSenderIdAndReceiverIdAndStatus(
-                conversationId, senderId, receiverId, "UNREAD");
-
-        unreadMessages.forEach(message -> message.setStatus("READ"));
-        chatMessageRepository.saveAll(unreadMessages);
+        String conversationId = findPrivateConversationId(senderId, receiverId);
+        readReceiptService.markConversationRead(receiverId, conversationId, null);
     }
 
     /**
@@ -186,7 +309,6 @@ public class ChatService {
      * Quản lý nhóm chat
      */
     @Transactional
-    @CacheEvict(value = { "conversationMessages", "userConversations", "groupConversations" }, allEntries = true)
     public Conversation createGroupConversation(String name, String creatorId, List<String> participantIds) {
         if (!participantIds.contains(creatorId)) {
             participantIds.add(creatorId);
@@ -199,7 +321,12 @@ public class ChatService {
         conversation.setParticipants(participantIds);
         conversation.onCreate();
 
-        return conversationRepository.save(conversation);
+        Conversation savedConversation = conversationRepository.save(conversation);
+        chatCacheService.evictUserConversations(participantIds);
+        chatCacheService.evictGroupConversations(participantIds);
+        inboxService.track(savedConversation);
+        messageProducer.sendMembershipChanged(savedConversation);
+        return savedConversation;
     }
 
     /**
@@ -222,7 +349,6 @@ public class ChatService {
      * Thêm thành viên vào nhóm chat
      */
     @Transactional
-    @CacheEvict(value = { "conversationMessages", "userConversations" }, allEntries = true)
     public Conversation addMembersToGroup(String conversationId, String requesterId, List<String> newMembers, List<String> fullName) {
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy nhóm chat"));
@@ -259,6 +385,10 @@ public class ChatService {
         systemMessage.setType("SYSTEM");
         chatMessageRepository.save(systemMessage);
 
+        evictGroupCaches(conversationId, participants);
+        inboxService.track(updatedConversation);
+        messageProducer.sendMembershipChanged(updatedConversation);
+
         return updatedConversation;
     }
 
@@ -266,7 +396,6 @@ public class ChatService {
      * Xóa thành viên khỏi nhóm chat
      */
     @Transactional
-    @CacheEvict(value = { "conversationMessages", "userConversations" }, allEntries = true)
     public Conversation removeMemberFromGroup(String conversationId, String requesterId, List<String> memberIds, List<String> fullNames) {
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy nhóm chat"));
@@ -310,6 +439,15 @@ public class ChatService {
         systemMessage.setType("SYSTEM");
         chatMessageRepository.save(systemMessage);
 
+        // Người bị xóa cũng phải thấy danh sách cuộc trò chuyện mới
+        List<String> affectedUsers = new ArrayList<>(participants);
+        affectedUsers.addAll(memberIds);
+        evictGroupCaches(conversationId, affectedUsers);
+        unreadCounterService.remove(conversationId, memberIds);
+        inboxService.untrack(conversationId, memberIds);
+        inboxService.track(updatedConversation);
+        messageProducer.sendMembershipChanged(updatedConversation);
+
         return updatedConversation;
     }
 
@@ -352,6 +490,10 @@ public class ChatService {
         systemMessage.setType("SYSTEM");
         chatMessageRepository.save(systemMessage);
 
+        evictGroupCaches(conversationId, participants);
+        inboxService.track(updatedConversation);
+        messageProducer.sendMembershipChanged(updatedConversation);
+
         return updatedConversation;
     }
 
@@ -359,7 +501,6 @@ public class ChatService {
      * Xóa nhóm chat đồng thời xóa tất cả tin nhắn liên quan
      */
     @Transactional
-    @CacheEvict(value = { "conversationMessages", "userConversations", "groupConversations" }, allEntries = true)
     public void deleteGroupConversation(String conversationId) {
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy nhóm chat"));
@@ -369,5 +510,29 @@ public class ChatService {
 
         // Xóa nhóm chat
         conversationRepository.delete(conversation);
+
+        evictGroupCaches(conversationId, conversation.getParticipants());
+        unreadCounterService.remove(conversationId, conversation.getParticipants());
+        inboxService.delete(conversationId, conversation.getParticipants());
+        messageProducer.sendMembershipRemoved(conversationId);
+    }
+
+    /**
+     * Gửi lại thành viên của mọi nhóm lên topic compacted, dùng một lần để nạp các nhóm có từ trước
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void republishGroupMemberships() {
+        if (!republishMembershipOnStartup) {
+            return;
+        }
+        conversationRepository.findByType("GROUP").forEach(messageProducer::sendMembershipChanged);
+    }
+
+    private void evictGroupCaches(String conversationId, List<String> participants) {
+        // Instance khác xóa mục của mình khi nhận sự kiện trên topic conversation-membership
+        conversationCache.invalidate(conversationId);
+        chatCacheService.evictConversationMessages(conversationId);
+        chatCacheService.evictUserConversations(participants);
+        chatCacheService.evictGroupConversations(participants);
     }
 }
\ No newline at end of file
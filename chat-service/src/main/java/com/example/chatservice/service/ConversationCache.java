@@ -0,0 +1,69 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.dto.ConversationMembershipEvent;
+import com.example.chatservice.kafka.MessageProducer;
+import com.example.chatservice.repository.ConversationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Thành viên nhóm chat giữ trong bộ nhớ cục bộ, dùng chung cho kiểm tra thành viên khi gửi tin nhóm
+ * và cho MessageConsumer khi phát tin, để nhóm đang hoạt động không tốn lần đọc Mongo nào cho mỗi tin nhắn.
+ * Mục bị xóa khi có sự kiện trên topic "conversation-membership" (mọi instance đều nhận) và hết hạn sau TTL
+ * để giới hạn độ cũ nếu lỡ mất sự kiện. Metric "cache.gets" / "cache.size" với tag cache=conversations.
+ */
+@Service
+@Slf4j
+public class ConversationCache {
+
+    public static final String CACHE_NAME = "conversations";
+
+    private final ConversationRepository conversationRepository;
+    private final Cache<String, ConversationMembershipEvent> conversations;
+
+    public ConversationCache(ConversationRepository conversationRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${chat.conversation-cache.max-size:50000}") long maxSize,
+                             @Value("${chat.conversation-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.conversationRepository = conversationRepository;
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, conversations, CACHE_NAME);
+    }
+
+    /**
+     * Trả về id, loại và thành viên của cuộc trò chuyện, hoặc null nếu không tồn tại (kết quả rỗng không được cache)
+     */
+    public ConversationMembershipEvent get(String conversationId) {
+        return conversations.get(conversationId, id -> conversationRepository.findById(id)
+                .map(ConversationMembershipEvent::from)
+                .orElse(null));
+    }
+
+    public void invalidate(String conversationId) {
+        conversations.invalidate(conversationId);
+    }
+
+    // Group id riêng cho mỗi instance: mọi instance đều phải xóa mục của mình.
+    // Chỉ cần key nên value được đọc dạng chuỗi thô, không deserialize.
+    @KafkaListener(topics = MessageProducer.MEMBERSHIP_TOPIC,
+            groupId = "chat-conversation-cache-${random.uuid}",
+            containerFactory = "membershipInvalidationContainerFactory")
+    public void onMembershipChanged(ConsumerRecord<String, String> record) {
+        if (record.key() != null) {
+            conversations.invalidate(record.key());
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.dto.InboxEntry;
+import com.example.chatservice.dto.InboxPage;
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.model.Conversation;
+import com.example.chatservice.repository.ConversationRepository;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hộp thư (danh sách cuộc trò chuyện) dạng read model trong Redis:
+ * ZSET chat:inbox:{userId} chứa conversationId với score = lastActivity, cùng HASH tóm tắt
+ * chat:conversation-summary:{conversationId} (tên, loại, thành viên, tin nhắn cuối).
+ * Được cập nhật dần khi lưu tin nhắn và khi thành viên thay đổi; một trang hộp thư kèm số tin chưa đọc
+ * được đọc bằng một lần gọi inbox_page.lua. Cờ chat:inbox-built:{userId} đánh dấu ZSET đã được dựng đầy đủ
+ * từ Mongo, thiếu cờ thì dựng lại ở lần đọc kế tiếp.
+ */
+@Service
+public class InboxService {
+
+    private static final String INBOX_KEY = "chat:inbox:";
+    private static final String INBOX_BUILT_KEY = "chat:inbox-built:";
+    private static final String SUMMARY_KEY = "chat:conversation-summary:";
+    private static final Duration INBOX_TTL = Duration.ofDays(30);
+    private static final int PREVIEW_LENGTH = 100;
+    static final int MAX_PAGE_SIZE = 100;
+    // id, score, unread và 6 trường tóm tắt cho mỗi cuộc trò chuyện trong kết quả script
+    private static final int ENTRY_FIELDS = 9;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> INBOX_PAGE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/inbox_page.lua"), List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ConversationRepository conversationRepository;
+    private final ReadReceiptService readReceiptService;
+
+    public InboxService(StringRedisTemplate redisTemplate, ConversationRepository conversationRepository,
+                        ReadReceiptService readReceiptService) {
+        this.redisTemplate = redisTemplate;
+        this.conversationRepository = conversationRepository;
+        this.readReceiptService = readReceiptService;
+    }
+
+    /**
+     * Cập nhật tóm tắt và đưa cuộc trò chuyện lên đầu hộp thư của mọi thành viên trong một pipeline
+     */
+    public void recordMessage(String conversationId, String name, String type,
+                              Collection<String> participants, ChatMessage message) {
+        Map<String, String> summary = new LinkedHashMap<>();
+        if (name != null) {
+            summary.put("name", name);
+        }
+        summary.put("type", type);
+        summary.put("participants", String.join(",", participants));
+        summary.put("lastMessageId", message.getId());
+        summary.put("lastMessageContent", preview(message.getContent()));
+        summary.put("lastMessageSenderId", message.getSenderId());
+        double score = toEpochMillis(message.getTimestamp());
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeSummary(connection, conversationId, summary);
+            for (String userId : participants) {
+                addToInbox(connection, userId, conversationId, score);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Ghi lại tóm tắt từ document và thêm cuộc trò chuyện vào hộp thư của mọi thành viên hiện tại
+     * (tạo nhóm, thêm thành viên, tham gia nhóm)
+     */
+    public void track(Conversation conversation) {
+        double score = toEpochMillis(activityOf(conversation));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeSummary(connection, conversation.getId(), summaryOf(conversation));
+            for (String userId : conversation.getParticipants()) {
+                addToInbox(connection, userId, conversation.getId(), score);
+            }
+            return null;
+        });
+    }
+
+    public void untrack(String conversationId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        byte[] member = bytes(conversationId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : userIds) {
+                connection.zSetCommands().zRem(bytes(INBOX_KEY + userId), member);
+            }
+            return null;
+        });
+    }
+
+    public void delete(String conversationId, Collection<String> participants) {
+        untrack(conversationId, participants);
+        redisTemplate.delete(SUMMARY_KEY + conversationId);
+    }
+
+    /**
+     * Một trang hộp thư theo lastActivity giảm dần. Con trỏ là (score, conversationId) của mục cuối trang trước.
+     * Kích thước trang ngoài 1..MAX_PAGE_SIZE bị từ chối với 400, vì script trả về cả trang trong một lần gọi.
+     */
+    public InboxPage getInbox(String userId, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Kích thước trang phải từ 1 đến " + MAX_PAGE_SIZE);
+        }
+        String[] position = cursor != null ? decodeCursor(cursor) : new String[]{"+inf", ""};
+        List<Object> result = readPage(userId, position, size);
+        if (((Long) result.get(0)) == 0L) {
+            rebuild(userId);
+            result = readPage(userId, position, size);
+        }
+
+        // Bộ đếm chưa đọc chưa được dựng: để ReadReceiptService dựng lại rồi dùng kết quả đó
+        Map<String, Long> unreadCounts = ((Long) result.get(1)) == 1L
+                ? null
+                : readReceiptService.getUnreadCounts(userId);
+
+        List<InboxEntry> entries = new ArrayList<>(size);
+        List<String> missingSummaries = new ArrayList<>();
+        String lastScore = null;
+        for (int i = 2; i + ENTRY_FIELDS <= result.size(); i += ENTRY_FIELDS) {
+            String conversationId = (String) result.get(i);
+            lastScore = (String) result.get(i + 1);
+            long unread = unreadCounts != null
+                    ? unreadCounts.getOrDefault(conversationId, 0L)
+                    : Long.parseLong((String) result.get(i + 2));
+            String type = emptyToNull(result.get(i + 4));
+            String participants = (String) result.get(i + 5);
+            if (type == null) {
+                missingSummaries.add(conversationId);
+            }
+            entries.add(new InboxEntry(
+                    conversationId,
+                    emptyToNull(result.get(i + 3)),
+                    type,
+                    participants.isEmpty() ? List.of() : Arrays.asList(participants.split(",")),
+                    toLocalDateTime(lastScore),
+                    emptyToNull(result.get(i + 6)),
+                    emptyToNull(result.get(i + 7)),
+                    emptyToNull(result.get(i + 8)),
+                    unread));
+        }
+        if (!missingSummaries.isEmpty()) {
+            fillMissingSummaries(entries, missingSummaries);
+        }
+
+        String nextCursor = null;
+        if (entries.size() == size) {
+            nextCursor = encodeCursor(lastScore, entries.get(entries.size() - 1).getConversationId());
+        }
+        return new InboxPage(entries, nextCursor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> readPage(String userId, String[] position, int size) {
+        return redisTemplate.execute(INBOX_PAGE_SCRIPT,
+                List.of(INBOX_KEY + userId, INBOX_BUILT_KEY + userId, UnreadCounterService.keyOf(userId)),
+                position[0], position[1], String.valueOf(size), SUMMARY_KEY);
+    }
+
+    /**
+     * Dựng hộp thư từ Mongo. ZADD GT nên không ghi đè score mới hơn do tin nhắn đến trong lúc dựng.
+     */
+    private void rebuild(String userId) {
+        List<Conversation> conversations = conversationRepository.findByParticipantsContaining(userId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Conversation conversation : conversations) {
+                writeSummary(connection, conversation.getId(), summaryOf(conversation));
+                addToInbox(connection, userId, conversation.getId(), toEpochMillis(activityOf(conversation)));
+            }
+            byte[] inboxKey = bytes(INBOX_KEY + userId);
+            connection.keyCommands().expire(inboxKey, INBOX_TTL.getSeconds());
+            connection.stringCommands().setEx(bytes(INBOX_BUILT_KEY + userId), INBOX_TTL.getSeconds(), bytes("1"));
+            return null;
+        });
+    }
+
+    /**
+     * Tóm tắt hết hạn trước ZSET: đọc lại từ Mongo và ghi lại cho các lần đọc sau
+     */
+    private void fillMissingSummaries(List<InboxEntry> entries, List<String> conversationIds) {
+        Map<String, Conversation> conversations = new LinkedHashMap<>();
+        conversationRepository.findAllById(conversationIds)
+                .forEach(conversation -> conversations.put(conversation.getId(), conversation));
+        for (InboxEntry entry : entries) {
+            Conversation conversation = conversations.get(entry.getConversationId());
+            if (conversation != null && entry.getType() == null) {
+                entry.setName(conversation.getName());
+                entry.setType(conversation.getType());
+                entry.setParticipants(conversation.getParticipants());
+                entry.setLastMessageId(conversation.getLastMessageId());
+                entry.setLastMessageContent(preview(conversation.getLastMessageContent()));
+                entry.setLastMessageSenderId(conversation.getLastMessageSenderId());
+            }
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            conversations.values().forEach(conversation ->
+                    writeSummary(connection, conversation.getId(), summaryOf(conversation)));
+            return null;
+        });
+    }
+
+    private static void writeSummary(RedisConnection connection, String conversationId, Map<String, String> summary) {
+        byte[] key = bytes(SUMMARY_KEY + conversationId);
+        Map<byte[], byte[]> raw = new LinkedHashMap<>();
+        summary.forEach((field, value) -> raw.put(bytes(field), bytes(value != null ? value : "")));
+        connection.hashCommands().hMSet(key, raw);
+        connection.keyCommands().expire(key, INBOX_TTL.getSeconds());
+    }
+
+    private static void addToInbox(RedisConnection connection, String userId, String conversationId, double score) {
+        connection.zSetCommands().zAdd(bytes(INBOX_KEY + userId), score, bytes(conversationId),
+                RedisZSetCommands.ZAddArgs.empty().gt());
+    }
+
+    private static Map<String, String> summaryOf(Conversation conversation) {
+        Map<String, String> summary = new LinkedHashMap<>();
+        summary.put("name", conversation.getName());
+        summary.put("type", conversation.getType());
+        summary.put("participants", String.join(",", conversation.getParticipants()));
+        summary.put("lastMessageId", conversation.getLastMessageId());
+        summary.put("lastMessageContent", preview(conversation.getLastMessageContent()));
+        summary.put("lastMessageSenderId", conversation.getLastMessageSenderId());
+        return summary;
+    }
+
+    private static LocalDateTime activityOf(Conversation conversation) {
+        if (conversation.getLastActivity() != null) {
+            return conversation.getLastActivity();
+        }
+        return conversation.getCreatedAt() != null ? conversation.getCreatedAt() : LocalDateTime.now();
+    }
+
+    private static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+
+    private static String emptyToNull(Object value) {
+        return value == null || value.toString().isEmpty() ? null : value.toString();
+    }
+
+    private static double toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(String score) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli((long) Double.parseDouble(score)), ZoneId.systemDefault());
+    }
+
+    private static String encodeCursor(String score, String conversationId) {
+        String raw = score + "|" + conversationId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(raw);
+            }
+            Double.parseDouble(parts[0]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Con trỏ phân trang không hợp lệ");
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
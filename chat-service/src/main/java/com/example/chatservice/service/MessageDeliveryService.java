@@ -0,0 +1,119 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.dto.DeliveryEnvelope;
+import com.example.chatservice.model.ChatMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đường giao tin nhắn WebSocket duy nhất (được MessageConsumer gọi cho mỗi bản ghi Kafka).
+ * Tin nhắn được serialize thành JSON đúng một lần rồi gửi dưới dạng byte[] nên simple broker
+ * không chuyển đổi lại cho từng session. Client dùng id tin nhắn làm khóa idempotency.
+ * Mặc định (một node) gửi thẳng qua simple broker. Ở chế độ cụm, tra UserSessionRegistry để tìm các node
+ * đang giữ session của người nhận: node hiện tại gửi trực tiếp, node khác nhận tin qua kênh Redis riêng
+ * của nó (ws:deliver:{nodeId}) rồi tự gửi cho session của mình.
+ * Metric "chat.deliveries" (type = user|group, route = local|remote) đếm số lần giao.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageDeliveryService implements MessageListener {
+
+    private static final Map<String, Object> JSON_HEADERS =
+            Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UserSessionRegistry sessionRegistry;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public void deliverToUser(String userId, ChatMessage message) {
+        DeliveryEnvelope envelope = DeliveryEnvelope.toUser(userId, message.getId(), toJson(message));
+        if (!sessionRegistry.isEnabled()) {
+            deliverLocally(envelope);
+            return;
+        }
+        for (String node : sessionRegistry.nodesOf(List.of(userId))) {
+            route(node, envelope);
+        }
+    }
+
+    /**
+     * Mỗi node có thành viên nhóm đang kết nối nhận đúng một bản tin và tự phát lên /topic/group/{id}
+     */
+    public void deliverToGroup(String conversationId, Collection<String> participants, ChatMessage message) {
+        DeliveryEnvelope envelope = DeliveryEnvelope.toGroup(conversationId, message.getId(), toJson(message));
+        if (!sessionRegistry.isEnabled()) {
+            deliverLocally(envelope);
+            return;
+        }
+        for (String node : sessionRegistry.nodesOf(participants)) {
+            route(node, envelope);
+        }
+    }
+
+    private void route(String node, DeliveryEnvelope envelope) {
+        if (sessionRegistry.isLocalNode(node)) {
+            deliverLocally(envelope);
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(UserSessionRegistry.channelOf(node), objectMapper.writeValueAsString(envelope));
+            count(envelope, "remote");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize tin nhắn " + envelope.getMessageId(), e);
+        }
+    }
+
+    /**
+     * Tin do node khác chuyển tới qua kênh Redis của node này
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            deliverLocally(objectMapper.readValue(message.getBody(), DeliveryEnvelope.class));
+        } catch (IOException e) {
+            log.error("Không thể đọc tin chuyển tiếp từ kênh {}: {}", new String(message.getChannel()), e.getMessage());
+        }
+    }
+
+    private void deliverLocally(DeliveryEnvelope envelope) {
+        byte[] payload = envelope.getPayload().getBytes(StandardCharsets.UTF_8);
+        if (DeliveryEnvelope.GROUP.equals(envelope.getType())) {
+            messagingTemplate.convertAndSend("/topic/group/" + envelope.getTarget(), payload, JSON_HEADERS);
+        } else {
+            messagingTemplate.convertAndSendToUser(envelope.getTarget(), "/queue/messages", payload, JSON_HEADERS);
+        }
+        count(envelope, "local");
+    }
+
+    private void count(DeliveryEnvelope envelope, String route) {
+        meterRegistry.counter("chat.deliveries",
+                "type", envelope.getType().toLowerCase(), "route", route).increment();
+    }
+
+    private String toJson(ChatMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize tin nhắn " + message.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.dto.ConversationMembershipEvent;
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.model.Conversation;
+import com.example.chatservice.model.ReadWatermark;
+import com.example.chatservice.repository.ChatMessageRepository;
+import com.example.chatservice.repository.ConversationRepository;
+import com.example.chatservice.repository.ReadWatermarkRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Xác nhận đã đọc: trạng thái tin nhắn được cập nhật bằng một lệnh updateMany (không nạp document),
+ * và mỗi người dùng có một mốc "đã đọc tới" cho từng cuộc trò chuyện. Số tin chưa đọc được đếm
+ * từ mốc này trên index conversation_timestamp_id thay vì quét trường status,
+ * và được giữ sẵn trong UnreadCounterService cho badge ở sidebar.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReadReceiptService {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ConversationRepository conversationRepository;
+    private final ReadWatermarkRepository watermarkRepository;
+    private final ChatCacheService chatCacheService;
+    private final UnreadCounterService unreadCounterService;
+    private final MongoTemplate mongoTemplate;
+    private final ConversationCache conversationCache;
+
+    /**
+     * Đánh dấu một tin nhắn đã đọc trong một lần findAndModify
+     */
+    public ChatMessage markMessageRead(String messageId) {
+        ChatMessage message = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(messageId)),
+                new Update().set("status", "READ"),
+                FindAndModifyOptions.options().returnNew(true),
+                ChatMessage.class);
+        if (message == null) {
+            throw new RuntimeException("Không tìm thấy tin nhắn");
+        }
+        chatCacheService.evictConversationMessages(message.getConversationId());
+        return message;
+    }
+
+    /**
+     * Người dùng đã đọc cuộc trò chuyện tới tin nhắn upToMessageId (hoặc tới tin mới nhất nếu null).
+     * Trạng thái READ trên từng tin chỉ có nghĩa ở chat 1-1 (một người nhận). Tin nhóm không gắn với
+     * một receiverId, nên trạng thái đọc của nhóm chỉ được ghi nhận qua mốc đã đọc của từng thành viên.
+     */
+    public void markConversationRead(String userId, String conversationId, String upToMessageId) {
+        ChatMessage upTo = upToMessageId != null
+                ? chatMessageRepository.findById(upToMessageId)
+                        .filter(message -> conversationId.equals(message.getConversationId()))
+                        .orElseThrow(() -> new RuntimeException("Không tìm thấy tin nhắn"))
+                : chatMessageRepository.findFirstByConversationIdOrderByTimestampDescIdDesc(conversationId)
+                        .orElse(null);
+        if (upTo == null) {
+            return;
+        }
+
+        ConversationMembershipEvent conversation = conversationCache.get(conversationId);
+        long updated = conversation != null && "GROUP".equals(conversation.getType())
+                ? 0
+                : chatMessageRepository.markReadUpTo(conversationId, userId, upTo.getTimestamp());
+        ReadWatermark watermark = advanceWatermark(userId, conversationId, upTo.getTimestamp(), upTo.getId());
+        // Đặt lại bộ đếm theo mốc (thường chỉ còn vài tin mới hơn mốc nên phép đếm rất nhỏ)
+        unreadCounterService.set(userId, conversationId, countUnread(userId, conversationId, watermark));
+        if (updated > 0) {
+            chatCacheService.evictConversationMessages(conversationId);
+        }
+    }
+
+    public long getUnreadCount(String userId, String conversationId) {
+        return watermarkRepository.findById(ReadWatermark.idOf(conversationId, userId))
+                .map(watermark -> countUnread(userId, conversationId, watermark))
+                .orElseGet(() -> chatMessageRepository.countFromOthers(conversationId, userId));
+    }
+
+    /**
+     * Số tin chưa đọc của mọi cuộc trò chuyện của người dùng (conversationId -> số tin),
+     * đọc từ bộ đếm Redis; chỉ đếm lại từ Mongo khi bộ đếm chưa được dựng
+     */
+    public Map<String, Long> getUnreadCounts(String userId) {
+        return unreadCounterService.getCounts(userId, () -> countUnreadFromWatermarks(userId));
+    }
+
+    private Map<String, Long> countUnreadFromWatermarks(String userId) {
+        Map<String, ReadWatermark> watermarks = watermarkRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(ReadWatermark::getConversationId, Function.identity()));
+        List<Conversation> conversations = conversationRepository.findByParticipantsContaining(userId);
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Conversation conversation : conversations) {
+            ReadWatermark watermark = watermarks.get(conversation.getId());
+            counts.put(conversation.getId(), watermark != null
+                    ? countUnread(userId, conversation.getId(), watermark)
+                    : chatMessageRepository.countFromOthers(conversation.getId(), userId));
+        }
+        return counts;
+    }
+
+    private long countUnread(String userId, String conversationId, ReadWatermark watermark) {
+        return chatMessageRepository.countUnreadAfter(conversationId, userId,
+                watermark.getReadUpTo(), watermark.getReadUpToMessageId());
+    }
+
+    /**
+     * Chỉ tiến mốc về phía trước: cập nhật có điều kiện, nếu chưa có mốc thì chèn mới.
+     * DuplicateKeyException nghĩa là mốc hiện có đã mới hơn (hoặc vừa được tạo bởi request khác).
+     * Trả về mốc sau khi cập nhật.
+     */
+    private ReadWatermark advanceWatermark(String userId, String conversationId, LocalDateTime timestamp, String messageId) {
+        String id = ReadWatermark.idOf(conversationId, userId);
+        LocalDateTime now = LocalDateTime.now();
+        Query behind = Query.query(Criteria.where("_id").is(id).orOperator(
+                Criteria.where("readUpTo").lt(timestamp),
+                Criteria.where("readUpTo").is(timestamp).and("readUpToMessageId").lt(messageId)));
+        Update update = new Update()
+                .set("readUpTo", timestamp)
+                .set("readUpToMessageId", messageId)
+                .set("updatedAt", now);
+        ReadWatermark advanced = new ReadWatermark(id, userId, conversationId, timestamp, messageId, now);
+        if (mongoTemplate.updateFirst(behind, update, ReadWatermark.class).getMatchedCount() > 0) {
+            return advanced;
+        }
+        try {
+            return mongoTemplate.insert(advanced);
+        } catch (DuplicateKeyException e) {
+            // Mốc đã có và không cũ hơn tin nhắn này
+            return watermarkRepository.findById(id).orElse(advanced);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.chatservice.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bộ đếm tin chưa đọc theo người dùng trong Redis: HASH chat:unread:{userId}, field là conversationId.
+ * Tăng khi lưu tin nhắn, đặt lại theo mốc đã đọc. Trường BUILT_FIELD đánh dấu hash đã được dựng đầy đủ
+ * từ Mongo; hash thiếu trường này (hết hạn, hoặc chỉ mới được tăng) sẽ được dựng lại ở lần đọc kế tiếp.
+ * Mọi lần ghi đều gia hạn TTL, nên hash của người dùng không còn hoạt động tự hết hạn.
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final String UNREAD_KEY = "chat:unread:";
+    private static final String BUILT_FIELD = "_built";
+    private static final Duration UNREAD_TTL = Duration.ofDays(30);
+
+    private static final RedisScript<Long> STORE_COUNTS_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/store_unread_counts.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public UnreadCounterService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Tăng bộ đếm của cuộc trò chuyện cho mọi người nhận trong một pipeline
+     */
+    public void increment(String conversationId, Collection<String> recipientIds) {
+        if (recipientIds.isEmpty()) {
+            return;
+        }
+        byte[] field = conversationId.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : recipientIds) {
+                byte[] key = key(userId);
+                connection.hashCommands().hIncrBy(key, field, 1);
+                connection.keyCommands().expire(key, UNREAD_TTL.getSeconds());
+            }
+            return null;
+        });
+    }
+
+    public void set(String userId, String conversationId, long count) {
+        byte[] key = key(userId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hSet(key, conversationId.getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(count).getBytes(StandardCharsets.UTF_8));
+            connection.keyCommands().expire(key, UNREAD_TTL.getSeconds());
+            return null;
+        });
+    }
+
+    public void remove(String conversationId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        byte[] field = conversationId.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : userIds) {
+                connection.hashCommands().hDel(key(userId), field);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Bộ đếm của mọi cuộc trò chuyện của người dùng bằng một HGETALL; dựng lại từ rebuild nếu hash chưa đầy đủ
+     */
+    public Map<String, Long> getCounts(String userId, Supplier<Map<String, Long>> rebuild) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(UNREAD_KEY + userId);
+        if (!entries.containsKey(BUILT_FIELD)) {
+            Map<String, Long> counts = rebuild.get();
+            store(userId, counts);
+            return counts;
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        entries.forEach((field, value) -> {
+            if (!BUILT_FIELD.equals(field)) {
+                counts.put(field.toString(), Long.parseLong(value.toString()));
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * DEL, HSET và EXPIRE chạy nguyên tử trong store_unread_counts.lua
+     */
+    private void store(String userId, Map<String, Long> counts) {
+        List<String> args = new ArrayList<>(2 * counts.size() + 3);
+        args.add(String.valueOf(UNREAD_TTL.getSeconds()));
+        counts.forEach((conversationId, count) -> {
+            args.add(conversationId);
+            args.add(String.valueOf(count));
+        });
+        args.add(BUILT_FIELD);
+        args.add("1");
+        redisTemplate.execute(STORE_COUNTS_SCRIPT, List.of(keyOf(userId)), args.toArray());
+    }
+
+    static String keyOf(String userId) {
+        return UNREAD_KEY + userId;
+    }
+
+    private static byte[] key(String userId) {
+        return keyOf(userId).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.chatservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sổ đăng ký người dùng -> node trong Redis cho chế độ cụm (chat.cluster.enabled).
+ * Simple broker chỉ giữ subscription trong bộ nhớ của một JVM, nên mỗi node ghi lại những người dùng
+ * đang có session trên nó để các node khác biết phải chuyển tin tới đâu.
+ * Node còn sống được đánh dấu trong ZSET ws:nodes (score = lần heartbeat cuối); mục của node đã chết
+ * trong ws:user-nodes:* bị bỏ qua khi tra cứu và tự hết hạn. Node còn sống ghi lại mục của những người dùng
+ * đang kết nối mỗi giờ (SADD + EXPIRE), nên session mở lâu hơn TTL vẫn được định tuyến.
+ */
+@Component
+@Slf4j
+public class UserSessionRegistry {
+
+    private static final String USER_NODES_KEY = "ws:user-nodes:";
+    private static final String NODES_KEY = "ws:nodes";
+    private static final String NODE_CHANNEL_PREFIX = "ws:deliver:";
+    private static final Duration USER_NODES_TTL = Duration.ofDays(1);
+    private static final long USER_NODES_REFRESH_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long nodeTtlMillis;
+    // sessionId -> userId, SessionDisconnectEvent có thể được phát nhiều lần cho cùng một session
+    private final Map<String, String> sessionOwners = new ConcurrentHashMap<>();
+    // userId -> số session trên node này
+    private final Map<String, Integer> localUsers = new ConcurrentHashMap<>();
+    // Chỉ được đọc / ghi trên thread heartbeat
+    private long lastUserNodesRefresh = System.currentTimeMillis();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-node-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public UserSessionRegistry(
+            StringRedisTemplate redisTemplate,
+            @Value("${chat.cluster.enabled:false}") boolean enabled,
+            @Value("${chat.cluster.node-id:}") String nodeId,
+            @Value("${chat.cluster.node-ttl-seconds:30}") long nodeTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.nodeTtlMillis = TimeUnit.SECONDS.toMillis(nodeTtlSeconds);
+        if (enabled) {
+            // Heartbeat đầu tiên chạy ngay để node khác thấy node này trước khi nó nhận session nào
+            heartbeatQuietly();
+            long period = Math.max(1, nodeTtlSeconds / 3);
+            heartbeat.scheduleAtFixedRate(this::heartbeatQuietly, period, period, TimeUnit.SECONDS);
+            log.info("Chế độ cụm WebSocket bật, node {}", this.nodeId);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLocalNode(String node) {
+        return nodeId.equals(node);
+    }
+
+    public static String channelOf(String node) {
+        return NODE_CHANNEL_PREFIX + node;
+    }
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (enabled && user != null && sessionId != null) {
+            register(sessionId, user.getName());
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        if (enabled) {
+            unregister(event.getSessionId());
+        }
+    }
+
+    public void register(String sessionId, String userId) {
+        if (sessionOwners.putIfAbsent(sessionId, userId) != null) {
+            return;
+        }
+        // Chỉ đếm trong map; lệnh Redis chạy ngoài merge / compute để không giữ khóa bin trong lúc gọi mạng
+        if (localUsers.merge(userId, 1, Integer::sum) == 1) {
+            addUserNode(userId);
+            // Một lần ngắt kết nối đồng thời có thể đã SREM trước SADD ở trên: đối chiếu lại với map
+            if (!localUsers.containsKey(userId)) {
+                removeUserNode(userId);
+            }
+        }
+    }
+
+    public void unregister(String sessionId) {
+        String userId = sessionOwners.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        if (localUsers.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null) == null) {
+            removeUserNode(userId);
+            // Một lần kết nối đồng thời có thể đã SADD trước SREM ở trên
+            if (localUsers.containsKey(userId)) {
+                addUserNode(userId);
+            }
+        }
+    }
+
+    private void addUserNode(String userId) {
+        byte[] key = (USER_NODES_KEY + userId).getBytes(StandardCharsets.UTF_8);
+        byte[] node = nodeId.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.setCommands().sAdd(key, node);
+            connection.keyCommands().expire(key, USER_NODES_TTL.toSeconds());
+            return null;
+        });
+    }
+
+    private void removeUserNode(String userId) {
+        redisTemplate.opsForSet().remove(USER_NODES_KEY + userId, nodeId);
+    }
+
+    public boolean hasLocalSession(String userId) {
+        return localUsers.containsKey(userId);
+    }
+
+    /**
+     * Các node còn sống đang giữ ít nhất một session của một trong các người dùng.
+     * SMEMBERS của từng người dùng và danh sách node còn sống đi chung một pipeline.
+     */
+    public Set<String> nodesOf(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        long aliveSince = System.currentTimeMillis() - nodeTtlMillis;
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zRangeByScore(NODES_KEY.getBytes(StandardCharsets.UTF_8),
+                    aliveSince, Double.MAX_VALUE);
+            for (String userId : userIds) {
+                connection.setCommands().sMembers((USER_NODES_KEY + userId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        Set<String> alive = new HashSet<>();
+        alive.add(nodeId);
+        if (results.get(0) instanceof Collection<?> aliveNodes) {
+            aliveNodes.forEach(node -> alive.add(node.toString()));
+        }
+        Set<String> nodes = new HashSet<>();
+        for (Object members : results.subList(1, results.size())) {
+            if (members instanceof Collection<?> memberNodes) {
+                for (Object node : memberNodes) {
+                    if (alive.contains(node.toString())) {
+                        nodes.add(node.toString());
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private void heartbeatQuietly() {
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+            redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - nodeTtlMillis);
+            if (now - lastUserNodesRefresh >= USER_NODES_REFRESH_MILLIS) {
+                refreshUserNodes();
+                lastUserNodesRefresh = now;
+            }
+        } catch (Exception e) {
+            log.warn("Không thể cập nhật heartbeat của node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi lại mục ws:user-nodes:* của mọi người dùng đang kết nối và gia hạn TTL, trong một pipeline
+     */
+    void refreshUserNodes() {
+        byte[] node = nodeId.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : localUsers.keySet()) {
+                byte[] key = (USER_NODES_KEY + userId).getBytes(StandardCharsets.UTF_8);
+                connection.setCommands().sAdd(key, node);
+                connection.keyCommands().expire(key, USER_NODES_TTL.toSeconds());
+            }
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        heartbeat.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        try {
+            byte[] node = nodeId.getBytes(StandardCharsets.UTF_8);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String userId : localUsers.keySet()) {
+                    connection.setCommands().sRem((USER_NODES_KEY + userId).getBytes(StandardCharsets.UTF_8), node);
+                }
+                connection.zSetCommands().zRem(NODES_KEY.getBytes(StandardCharsets.UTF_8), node);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Không thể xóa đăng ký của node {}: {}", nodeId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+-- Đọc một trang hộp thư trong một lần gọi: id cuộc trò chuyện theo lastActivity giảm dần,
+-- kèm tóm tắt và số tin chưa đọc của từng cuộc trò chuyện.
+-- KEYS[1] = ZSET hộp thư (score = lastActivity epoch ms), KEYS[2] = cờ đã dựng hộp thư,
+-- KEYS[3] = HASH bộ đếm chưa đọc của người dùng (trường '_built' đánh dấu đã dựng đầy đủ)
+-- ARGV[1] = score của con trỏ ('+inf' ở trang đầu), ARGV[2] = conversationId của con trỏ ('' ở trang đầu),
+-- ARGV[3] = số mục cần lấy, ARGV[4] = tiền tố key HASH tóm tắt cuộc trò chuyện
+-- Trả về {0} nếu hộp thư chưa được dựng, ngược lại
+-- {1, unreadBuilt, id, score, unread, name, type, participants, lastMessageId, lastMessageContent, lastMessageSenderId, ...}
+if redis.call('EXISTS', KEYS[2]) == 0 then
+    return {0}
+end
+
+local result = {1, redis.call('HEXISTS', KEYS[3], '_built')}
+local cursorScore = ARGV[1]
+local cursorId = ARGV[2]
+local limit = tonumber(ARGV[3])
+local found = 0
+local offset = 0
+
+while found < limit do
+    local page = redis.call('ZREVRANGEBYSCORE', KEYS[1], cursorScore, '-inf', 'WITHSCORES', 'LIMIT', offset, limit)
+    if #page == 0 then
+        break
+    end
+    for i = 1, #page, 2 do
+        local id, score = page[i], page[i + 1]
+        -- Các mục cùng score được xếp theo member giảm dần: bỏ qua những mục đã trả ở trang trước
+        if found < limit and (cursorId == '' or score ~= cursorScore or id < cursorId) then
+            found = found + 1
+            local summary = redis.call('HMGET', ARGV[4] .. id, 'name', 'type', 'participants',
+                    'lastMessageId', 'lastMessageContent', 'lastMessageSenderId')
+            table.insert(result, id)
+            table.insert(result, score)
+            table.insert(result, redis.call('HGET', KEYS[3], id) or '0')
+            for j = 1, 6 do
+                table.insert(result, summary[j] or '')
+            end
+        end
+    end
+    offset = offset + limit
+end
+return result
@@ -0,0 +1,10 @@
+-- Thay toàn bộ HASH bộ đếm chưa đọc bằng kết quả dựng lại từ Mongo trong một bước nguyên tử,
+-- để HINCRBY của tin nhắn mới không chen vào giữa DEL và HSET.
+-- KEYS[1] = HASH bộ đếm chưa đọc của người dùng
+-- ARGV[1] = TTL (giây), ARGV[2..] = field, value, field, value, ... (gồm cả '_built')
+redis.call('DEL', KEYS[1])
+for i = 2, #ARGV, 2 do
+    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+redis.call('EXPIRE', KEYS[1], ARGV[1])
+return 1
@@ -0,0 +1,219 @@
+package com.example.chatservice.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtChannelInterceptorTests {
+
+    private static final int BURST = 10_000;
+
+    private HttpServer jwksServer;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile JWKSet publishedKeys;
+    private JwksKeyProvider keyProvider;
+    private JwtChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwksServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        jwksServer.createContext("/certs", exchange -> {
+            fetches.incrementAndGet();
+            byte[] body = publishedKeys.toString(true).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        jwksServer.start();
+
+        String uri = "http://127.0.0.1:" + jwksServer.getAddress().getPort() + "/certs";
+        keyProvider = new JwksKeyProvider(uri, 300, 0);
+        interceptor = new JwtChannelInterceptor(keyProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyProvider.cleanup();
+        jwksServer.stop(0);
+    }
+
+    @Test
+    void burstOnOneSessionFetchesKeysOnce() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(key.toPublicJWK());
+        String token = sign(key, "user-1");
+
+        Map<String, Object> session = new HashMap<>();
+        assertThat(interceptor.preSend(frame(StompCommand.CONNECT, "s1", session, token), null)).isNotNull();
+
+        for (int i = 0; i < BURST; i++) {
+            Message<?> result = interceptor.preSend(frame(StompCommand.SEND, "s1", session, token), null);
+            assertThat(result).isNotNull();
+            assertThat(StompHeaderAccessor.wrap(result).getUser().getName()).isEqualTo("user-1");
+        }
+
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    void burstOfConnectsReusesCachedKeys() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(key.toPublicJWK());
+        String token = sign(key, "user-1");
+
+        for (int i = 0; i < BURST; i++) {
+            Message<?> connect = frame(StompCommand.CONNECT, "s" + i, new HashMap<>(), token);
+            assertThat(interceptor.preSend(connect, null)).isNotNull();
+        }
+
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownKeyIdTriggersSingleRefetch() throws Exception {
+        RSAKey oldKey = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(oldKey.toPublicJWK());
+        interceptor.preSend(frame(StompCommand.CONNECT, "s1", new HashMap<>(), sign(oldKey, "user-1")), null);
+
+        // Keycloak xoay vòng khóa
+        RSAKey newKey = new RSAKeyGenerator(2048).keyID("k2").generate();
+        publishedKeys = new JWKSet(newKey.toPublicJWK());
+        String newToken = sign(newKey, "user-2");
+
+        for (int i = 0; i < 100; i++) {
+            Message<?> connect = frame(StompCommand.CONNECT, "n" + i, new HashMap<>(), newToken);
+            assertThat(interceptor.preSend(connect, null)).isNotNull();
+        }
+
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    @Test
+    void framesWithoutFreshTokenAreRejectedAfterExpiry() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(key.toPublicJWK());
+
+        Map<String, Object> session = connectedSession(key, "user-1");
+        // Token của session hết hạn trong lúc kết nối vẫn mở
+        session.put(JwtChannelInterceptor.SESSION_AUTH_EXPIRY_ATTR, new Date(System.currentTimeMillis() - 1_000));
+
+        assertThat(interceptor.preSend(frame(StompCommand.SEND, "s1", session, null), null)).isNull();
+        assertThat(interceptor.preSend(frame(StompCommand.SUBSCRIBE, "s1", session, null), null)).isNull();
+
+        // Principal gắn sẵn trên frame cũng không được dùng thay cho session đã hết hạn
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(session);
+        accessor.setUser(() -> "user-1");
+        accessor.setLeaveMutable(true);
+        Message<?> withUser = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        assertThat(interceptor.preSend(withUser, null)).isNull();
+    }
+
+    @Test
+    void freshTokenOnFrameRenewsExpiredSession() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(key.toPublicJWK());
+
+        Map<String, Object> session = connectedSession(key, "user-1");
+        session.put(JwtChannelInterceptor.SESSION_AUTH_EXPIRY_ATTR, new Date(System.currentTimeMillis() - 1_000));
+
+        // Frontend gửi access token mới trên mỗi SUBSCRIBE/SEND
+        Message<?> result = interceptor.preSend(frame(StompCommand.SEND, "s1", session, sign(key, "user-1")), null);
+        assertThat(result).isNotNull();
+        assertThat(StompHeaderAccessor.wrap(result).getUser().getName()).isEqualTo("user-1");
+        assertThat((Date) session.get(JwtChannelInterceptor.SESSION_AUTH_EXPIRY_ATTR)).isAfter(new Date());
+
+        // Session đã được gia hạn: frame không kèm token lại dùng principal của session
+        assertThat(interceptor.preSend(frame(StompCommand.SUBSCRIBE, "s1", session, null), null)).isNotNull();
+    }
+
+    @Test
+    void freshTokenOfAnotherUserDoesNotTakeOverExpiredSession() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(key.toPublicJWK());
+
+        Map<String, Object> session = connectedSession(key, "user-1");
+        session.put(JwtChannelInterceptor.SESSION_AUTH_EXPIRY_ATTR, new Date(System.currentTimeMillis() - 1_000));
+
+        assertThat(interceptor.preSend(frame(StompCommand.SEND, "s1", session, sign(key, "user-2")), null)).isNull();
+    }
+
+    @Test
+    void disconnectPassesAfterExpiry() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(key.toPublicJWK());
+
+        Map<String, Object> session = connectedSession(key, "user-1");
+        session.put(JwtChannelInterceptor.SESSION_AUTH_EXPIRY_ATTR, new Date(System.currentTimeMillis() - 1_000));
+
+        Message<?> disconnect = interceptor.preSend(frame(StompCommand.DISCONNECT, "s1", session, null), null);
+        assertThat(disconnect).isNotNull();
+        assertThat(StompHeaderAccessor.wrap(disconnect).getUser().getName()).isEqualTo("user-1");
+
+        // Frame DISCONNECT tổng hợp khi session WebSocket đóng: không header, không principal của session
+        assertThat(interceptor.preSend(frame(StompCommand.DISCONNECT, "s2", new HashMap<>(), null), null)).isNotNull();
+    }
+
+    @Test
+    void rejectsTokenSignedByUnpublishedKey() throws Exception {
+        RSAKey published = new RSAKeyGenerator(2048).keyID("k1").generate();
+        RSAKey forged = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishedKeys = new JWKSet(published.toPublicJWK());
+
+        Message<?> connect = frame(StompCommand.CONNECT, "s1", new HashMap<>(), sign(forged, "user-1"));
+
+        assertThat(interceptor.preSend(connect, null)).isNull();
+    }
+
+    private Map<String, Object> connectedSession(RSAKey key, String subject) throws Exception {
+        Map<String, Object> session = new HashMap<>();
+        assertThat(interceptor.preSend(frame(StompCommand.CONNECT, "s1", session, sign(key, subject)), null)).isNotNull();
+        return session;
+    }
+
+    private static String sign(RSAKey key, String subject) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .claim("preferred_username", subject)
+                .expirationTime(new Date(System.currentTimeMillis() + 60_000))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static Message<?> frame(StompCommand command, String sessionId, Map<String, Object> session, String token) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        accessor.setSessionAttributes(session);
+        if (token != null) {
+            accessor.setNativeHeader("Authorization", "Bearer " + token);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
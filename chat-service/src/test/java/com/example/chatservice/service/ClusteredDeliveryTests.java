@@ -0,0 +1,166 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.config.RedisConfig;
+import com.example.chatservice.model.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Hai node chat-service trong cùng JVM dùng chung một Redis nhúng: tin gửi từ node A phải tới
+ * session đang nằm trên node B và không được phát ở node không giữ session nào của người nhận.
+ */
+class ClusteredDeliveryTests {
+
+    private RedisServer redis;
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        nodeA = new Node("node-a", port);
+        nodeB = new Node("node-b", port);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodeA.close();
+        nodeB.close();
+        redis.stop();
+    }
+
+    @Test
+    void privateMessageIsRoutedToNodeOwningTheSession() {
+        nodeB.registry.register("session-1", "alice");
+        ChatMessage message = message("m-1", null);
+
+        nodeA.delivery.deliverToUser("alice", message);
+
+        verify(nodeB.messagingTemplate, timeout(2000)).convertAndSendToUser(eq("alice"), eq("/queue/messages"), any(), anyMap());
+        verify(nodeA.messagingTemplate, after(200).never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void localSessionIsDeliveredWithoutRedisHop() {
+        nodeA.registry.register("session-1", "alice");
+
+        nodeA.delivery.deliverToUser("alice", message("m-1", null));
+
+        verify(nodeA.messagingTemplate).convertAndSendToUser(eq("alice"), eq("/queue/messages"), any(), anyMap());
+        verify(nodeB.messagingTemplate, after(200).never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void disconnectedUserIsNoLongerRouted() {
+        nodeB.registry.register("session-1", "alice");
+        nodeB.registry.unregister("session-1");
+        // SessionDisconnectEvent có thể được phát lại, lần thứ hai không được làm gì
+        nodeB.registry.unregister("session-1");
+
+        nodeA.delivery.deliverToUser("alice", message("m-1", null));
+
+        verify(nodeB.messagingTemplate, after(300).never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void groupMessageReachesEveryNodeWithMembersOnce() {
+        nodeA.registry.register("session-1", "alice");
+        nodeB.registry.register("session-2", "bob");
+        nodeB.registry.register("session-3", "carol");
+        List<String> participants = List.of("alice", "bob", "carol", "dave");
+
+        nodeA.delivery.deliverToGroup("g-1", participants, message("m-2", "g-1"));
+
+        verify(nodeA.messagingTemplate).convertAndSend(eq("/topic/group/g-1"), any(Object.class), anyMap());
+        verify(nodeB.messagingTemplate, timeout(2000).times(1)).convertAndSend(eq("/topic/group/g-1"), any(Object.class), anyMap());
+        assertThat(nodeA.deliveries("group", "local")).isEqualTo(1);
+        assertThat(nodeA.deliveries("group", "remote")).isEqualTo(1);
+    }
+
+    @Test
+    void heartbeatRefreshKeepsLongLivedSessionsRouted() {
+        nodeB.registry.register("session-1", "alice");
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(nodeB.connectionFactory);
+        // Mục sắp hết hạn (session mở gần hết TTL) và một mục đã mất
+        redisTemplate.expire("ws:user-nodes:alice", Duration.ofSeconds(5));
+        nodeB.registry.register("session-2", "bob");
+        redisTemplate.delete("ws:user-nodes:bob");
+
+        nodeB.registry.refreshUserNodes();
+
+        assertThat(redisTemplate.getExpire("ws:user-nodes:alice", TimeUnit.SECONDS)).isGreaterThan(3600);
+        assertThat(redisTemplate.getExpire("ws:user-nodes:bob", TimeUnit.SECONDS)).isGreaterThan(3600);
+        assertThat(nodeA.registry.nodesOf(List.of("alice", "bob"))).containsExactly("node-b");
+    }
+
+    private static ChatMessage message(String id, String conversationId) {
+        return new ChatMessage(id, conversationId, "sender", null, "Xin chào", LocalDateTime.now(), "UNREAD", "text", null);
+    }
+
+    private static final class Node {
+        final LettuceConnectionFactory connectionFactory;
+        final UserSessionRegistry registry;
+        final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        final MessageDeliveryService delivery;
+        final RedisMessageListenerContainer listenerContainer;
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        Node(String nodeId, int redisPort) {
+            connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", redisPort));
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+            registry = new UserSessionRegistry(redisTemplate, true, nodeId, 30);
+            delivery = new MessageDeliveryService(messagingTemplate, registry, redisTemplate,
+                    new RedisConfig().objectMapper(), meterRegistry);
+
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(connectionFactory);
+            listenerContainer.addMessageListener(delivery, new ChannelTopic(UserSessionRegistry.channelOf(nodeId)));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        }
+
+        double deliveries(String type, String route) {
+            return meterRegistry.counter("chat.deliveries", "type", type, "route", route).count();
+        }
+
+        void close() throws Exception {
+            listenerContainer.destroy();
+            registry.cleanup();
+            connectionFactory.destroy();
+        }
+    }
+}
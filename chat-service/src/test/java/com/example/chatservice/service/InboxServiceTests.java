@@ -0,0 +1,117 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.dto.InboxEntry;
+import com.example.chatservice.dto.InboxPage;
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.repository.ConversationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hộp thư trên Redis nhúng: thứ tự theo hoạt động gần nhất, phân trang theo con trỏ
+ * (kể cả khi nhiều cuộc trò chuyện có cùng lastActivity) và số tin chưa đọc đi kèm.
+ */
+class InboxServiceTests {
+
+    private RedisServer redis;
+    private LettuceConnectionFactory connectionFactory;
+    private InboxService inboxService;
+    private final LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        ConversationRepository conversationRepository = mock(ConversationRepository.class);
+        when(conversationRepository.findByParticipantsContaining("alice")).thenReturn(List.of());
+        ReadReceiptService readReceiptService = mock(ReadReceiptService.class);
+        when(readReceiptService.getUnreadCounts("alice")).thenReturn(Map.of("c-2", 3L));
+        inboxService = new InboxService(new StringRedisTemplate(connectionFactory), conversationRepository, readReceiptService);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Test
+    void rejectsPageSizeOutsideBounds() {
+        for (int size : new int[]{-1, 0, InboxService.MAX_PAGE_SIZE + 1}) {
+            assertThatThrownBy(() -> inboxService.getInbox("alice", null, size))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+        assertThat(inboxService.getInbox("alice", null, InboxService.MAX_PAGE_SIZE).getConversations()).isEmpty();
+    }
+
+    @Test
+    void pagesByLatestActivityWithCursor() {
+        record("c-1", base, "m-1");
+        record("c-2", base.plusMinutes(5), "m-2");
+        // Cùng lastActivity với c-2: con trỏ phải phân biệt được theo conversationId
+        record("c-3", base.plusMinutes(5), "m-3");
+        record("c-4", base.plusMinutes(1), "m-4");
+
+        InboxPage first = inboxService.getInbox("alice", null, 2);
+        InboxPage second = inboxService.getInbox("alice", first.getNextCursor(), 2);
+        InboxPage last = inboxService.getInbox("alice", second.getNextCursor(), 2);
+
+        assertThat(first.getConversations()).extracting(InboxEntry::getConversationId).containsExactly("c-3", "c-2");
+        assertThat(second.getConversations()).extracting(InboxEntry::getConversationId).containsExactly("c-4", "c-1");
+        assertThat(last.getConversations()).isEmpty();
+        assertThat(last.getNextCursor()).isNull();
+
+        InboxEntry latest = first.getConversations().get(1);
+        assertThat(latest.getLastMessageId()).isEqualTo("m-2");
+        assertThat(latest.getLastActivity()).isEqualTo(base.plusMinutes(5));
+        assertThat(latest.getParticipants()).containsExactly("alice", "bob");
+        assertThat(latest.getUnreadCount()).isEqualTo(3);
+    }
+
+    @Test
+    void newMessageMovesConversationToTopAndRemovedMemberNoLongerSeesIt() {
+        record("c-1", base, "m-1");
+        record("c-2", base.plusMinutes(1), "m-2");
+        record("c-1", base.plusMinutes(2), "m-3");
+
+        assertThat(inboxService.getInbox("alice", null, 10).getConversations())
+                .extracting(InboxEntry::getConversationId).containsExactly("c-1", "c-2");
+
+        inboxService.untrack("c-1", List.of("alice"));
+
+        assertThat(inboxService.getInbox("alice", null, 10).getConversations())
+                .extracting(InboxEntry::getConversationId).containsExactly("c-2");
+    }
+
+    private void record(String conversationId, LocalDateTime timestamp, String messageId) {
+        ChatMessage message = new ChatMessage(messageId, conversationId, "bob", "alice", "Xin chào",
+                timestamp, "UNREAD", "text", null);
+        inboxService.recordMessage(conversationId, null, "ONE_TO_ONE", List.of("alice", "bob"), message);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.config.RedisConfig;
+import com.example.chatservice.dto.MessageHistoryPage;
+import com.example.chatservice.kafka.MessageProducer;
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.repository.ChatMessageRepository;
+import com.example.chatservice.repository.ConversationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đọc cùng một trang lịch sử hai lần qua cache Redis thật: lần thứ hai phải lấy từ cache
+ * và vẫn trả về đúng kiểu MessageHistoryPage (không phải LinkedHashMap). Khóa phiên bản có TTL dài hơn cache.
+ */
+class MessageHistoryCacheTests {
+
+    private static final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private static int port;
+
+    private RedisServer redis;
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        context = new AnnotationConfigApplicationContext(TestConfig.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        context.close();
+        redis.stop();
+    }
+
+    @Test
+    void secondReadOfLatestPageComesFromCacheWithItsType() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(chatMessageRepository.findByConversationIdOrderByTimestampDesc(eq("c-1"), any(Pageable.class)))
+                .thenReturn(List.of(message("m-2", base.plusMinutes(1)), message("m-1", base)));
+        ChatService chatService = context.getBean(ChatService.class);
+
+        MessageHistoryPage first = chatService.getMessageHistory("c-1", null, 2);
+        MessageHistoryPage second = chatService.getMessageHistory("c-1", null, 2);
+
+        verify(chatMessageRepository, times(1)).findByConversationIdOrderByTimestampDesc(eq("c-1"), any(Pageable.class));
+        assertThat(second).isInstanceOf(MessageHistoryPage.class).isEqualTo(first);
+        assertThat(second.getMessages()).extracting(ChatMessage::getId).containsExactly("m-1", "m-2");
+        assertThat(second.getMessages().get(1).getTimestamp()).isEqualTo(base.plusMinutes(1));
+        assertThat(second.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void rejectsPageSizeOutsideBounds() {
+        ChatService chatService = context.getBean(ChatService.class);
+
+        for (int size : new int[]{-1, 0, ChatService.MAX_HISTORY_PAGE_SIZE + 1}) {
+            assertThatThrownBy(() -> chatService.getMessageHistory("c-2", null, size))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+        verify(chatMessageRepository, never()).findByConversationIdOrderByTimestampDesc(eq("c-2"), any(Pageable.class));
+    }
+
+    @Test
+    void versionKeyOutlivesCachedPages() {
+        ChatCacheService chatCacheService = context.getBean(ChatCacheService.class);
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(context.getBean(LettuceConnectionFactory.class));
+
+        chatCacheService.evictConversationMessages("c-1");
+        chatCacheService.evictConversationMessages("c-1");
+
+        assertThat(chatCacheService.messagesVersion("c-1")).isEqualTo(2);
+        Long ttl = redisTemplate.getExpire("cache_version:conversationMessages:c-1", TimeUnit.SECONDS);
+        assertThat(ttl).isGreaterThan(RedisConfig.CACHE_TTL.toSeconds())
+                .isLessThanOrEqualTo(ChatCacheService.VERSION_TTL.toSeconds());
+    }
+
+    private static ChatMessage message(String id, LocalDateTime timestamp) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setConversationId("c-1");
+        message.setSenderId("alice");
+        message.setContent("hello " + id);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    @Configuration
+    @Import(RedisConfig.class)
+    static class TestConfig {
+
+        @Bean
+        LettuceConnectionFactory redisConnectionFactory() {
+            return new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        }
+
+        @Bean("chatCacheService")
+        ChatCacheService chatCacheService(LettuceConnectionFactory connectionFactory) {
+            return new ChatCacheService(new StringRedisTemplate(connectionFactory));
+        }
+
+        @Bean
+        ChatService chatService(ChatCacheService chatCacheService) {
+            return new ChatService(chatMessageRepository, mock(ConversationRepository.class), mock(MessageProducer.class),
+                    chatCacheService, mock(ConversationCache.class), mock(ReadReceiptService.class),
+                    mock(UnreadCounterService.class), mock(InboxService.class));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.chatservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bộ đếm chưa đọc trên Redis nhúng: hash chỉ mới được tăng vẫn có TTL, và kết quả dựng lại
+ * thay thế toàn bộ hash (kể cả trường cũ) cùng với cờ '_built' và TTL.
+ */
+class UnreadCounterServiceTests {
+
+    private RedisServer redis;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private UnreadCounterService unreadCounterService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        unreadCounterService = new UnreadCounterService(redisTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @Test
+    void incrementedHashExpiresEvenIfNeverRead() {
+        unreadCounterService.increment("c-1", List.of("alice", "bob"));
+        unreadCounterService.set("carol", "c-1", 0);
+
+        for (String userId : List.of("alice", "bob", "carol")) {
+            assertThat(redisTemplate.getExpire(UnreadCounterService.keyOf(userId), TimeUnit.SECONDS)).isPositive();
+        }
+        assertThat(redisTemplate.opsForHash().get(UnreadCounterService.keyOf("alice"), "c-1")).isEqualTo("1");
+    }
+
+    @Test
+    void rebuildReplacesWholeHashAndLaterIncrementsAreKept() {
+        unreadCounterService.increment("stale", List.of("alice"));
+
+        Map<String, Long> rebuilt = unreadCounterService.getCounts("alice", () -> Map.of("c-1", 2L, "c-2", 0L));
+        unreadCounterService.increment("c-1", List.of("alice"));
+
+        assertThat(rebuilt).containsOnly(Map.entry("c-1", 2L), Map.entry("c-2", 0L));
+        assertThat(unreadCounterService.getCounts("alice", Map::of))
+                .containsOnly(Map.entry("c-1", 3L), Map.entry("c-2", 0L));
+        assertThat(redisTemplate.getExpire(UnreadCounterService.keyOf("alice"), TimeUnit.SECONDS)).isPositive();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.friendservice.config;
+
+import com.example.friendservice.model.Friend;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * friends.id used to be AUTO_INCREMENT. The friends_seq table created by ddl-auto starts at 1, so it is moved
+ * past the existing ids (plus one allocation block for the pooled optimizer) before any insert can use it.
+ * Runs after the EntityManagerFactory so the sequence table exists, and is a no-op once the sequence is ahead.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class FriendIdSequenceInitializer {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FriendIdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignWithExistingIds() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM friends", Long.class);
+        long next = (maxId != null ? maxId : 0) + Friend.ID_ALLOCATION_SIZE + 1;
+        int updated = jdbcTemplate.update("UPDATE friends_seq SET next_val = ? WHERE next_val < ?", next, next);
+        if (updated > 0) {
+            log.info("Moved friends_seq to {} past the existing friend ids", next);
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package com.example.friendservice.config;
 
 import com.example.friendservice.dto.FriendEvent;
-import com.fasterxml.jackson.databind.JsonSerializer;
-import com.fasterxml.jackson.databind.ser.std.StringSerializer;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
 
+@Configuration
 public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
@@ -33,20 +40,38 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /**
+     * Consumer for friend events. Cache invalidation only needs changes from startup on (latest); the
+     * friend graph seeks to the beginning of the compacted topic itself on every assignment
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, FriendEvent> friendEventContainerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+
+        ConcurrentKafkaListenerContainerFactory<String, FriendEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new JsonDeserializer<>(FriendEvent.class, false)));
+        return factory;
+    }
+
     @Bean
     public NewTopic friendRequestTopic() {
         return TopicBuilder.name("friend-request-topic")
                 .partitions(3)
-                .replicas(2)
+                .replicas(1)
                 .compact()
                 .build();
     }
 
+    // Keyed by the user pair, so compaction keeps the latest FRIEND_ACCEPTED / FRIEND_REMOVED per friendship
     @Bean
     public NewTopic friendAcceptedTopic() {
         return TopicBuilder.name("friend-accepted-topic")
                 .partitions(3)
-                .replicas(2)
+                .replicas(1)
                 .compact()
                 .build();
     }
@@ -1,11 +1,18 @@
 package com.example.friendservice.config;
 
+import com.example.friendservice.dto.CursorPage;
+import com.example.friendservice.model.Friend;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -16,11 +23,16 @@ import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
+    public static final Duration CACHE_TTL = Duration.ofHours(1);
+
+    public static final Set<String> CACHE_NAMES = Set.of("friends", "friendsScroll", "mutualFriends", "friendSuggestions");
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -34,15 +46,44 @@ public class RedisConfig {
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
 
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(1))
+                .entryTtl(CACHE_TTL)
                 .serializeValuesWith(RedisSerializationContext.SerializationPair
                         .fromSerializer(jsonSerializer));
 
+        // The default serializer writes no type info, so a cached CursorPage would come back as a LinkedHashMap
+        JavaType friendPage = objectMapper.getTypeFactory().constructParametricType(CursorPage.class, Friend.class);
+        RedisCacheConfiguration friendPageConfig = cacheConfig.serializeValuesWith(RedisSerializationContext.SerializationPair
+                .fromSerializer(new Jackson2JsonRedisSerializer<>(objectMapper, friendPage)));
+
+        // initialCacheNames assigns the defaults to every name, so per-cache configurations must come after it
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(cacheConfig)
+                .initialCacheNames(CACHE_NAMES)
+                .withCacheConfiguration("friendsScroll", friendPageConfig)
+                .enableStatistics()
                 .build();
     }
 
+    /**
+     * Hit ratio per cache ("cache.hit.ratio"), next to the actuator's cache.gets / cache.puts / cache.evictions
+     */
+    @Bean
+    public MeterBinder cacheHitRatioMetrics(RedisCacheManager cacheManager) {
+        return registry -> CACHE_NAMES.forEach(name ->
+                Gauge.builder("cache.hit.ratio", cacheManager, manager -> hitRatio(manager, name))
+                        .tag("cache", name)
+                        .register(registry));
+    }
+
+    private static double hitRatio(RedisCacheManager cacheManager, String name) {
+        if (!(cacheManager.getCache(name) instanceof RedisCache cache)) {
+            return 0;
+        }
+        CacheStatistics stats = cache.getStatistics();
+        long lookups = stats.getHits() + stats.getMisses();
+        return lookups == 0 ? 0 : (double) stats.getHits() / lookups;
+    }
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, ObjectMapper objectMapper) {
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
@@ -1,5 +1,6 @@
 package com.example.friendservice.controller;
 
+import com.example.friendservice.dto.CursorPage;
 import com.example.friendservice.model.Friend;
 import com.example.friendservice.model.FriendRequest;
 import com.example.friendservice.service.FriendService;
@@ -39,6 +40,19 @@ public class FriendController {
         }
     }
 
+    /**
+     * Keyset-paginated friends; sortBy must be an indexed key (createdAt, friendId)
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<Friend>> scrollFriends(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDirection) {
+        return ResponseEntity.ok(friendService.scrollFriends(userId, cursor, size, sortBy, sortDirection));
+    }
+
     @PostMapping("/request")
     public ResponseEntity<FriendRequest> sendFriendRequest(
             @RequestHeader("X-User-ID") String userId,
@@ -60,6 +74,14 @@ public class FriendController {
                 friendService.getPendingRequests(userId, page, size));
     }
 
+    @GetMapping("/requests/pending/scroll")
+    public ResponseEntity<CursorPage<FriendRequest>> scrollPendingRequests(
+            @RequestHeader("X-User-ID") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(friendService.scrollPendingRequests(userId, cursor, size));
+    }
+
     @PostMapping("/requests/{requestId}/accept")
     public ResponseEntity<Void> acceptFriendRequest(
             @RequestHeader("X-User-ID") String userId,
@@ -6,8 +6,20 @@ import java.time.LocalDateTime;
 
 @Data
 public class FriendEvent {
+    public static final String FRIEND_ACCEPTED = "FRIEND_ACCEPTED";
+    public static final String FRIEND_REMOVED = "FRIEND_REMOVED";
+
     private String type;
     private String senderId;
     private String receiverId;
     private LocalDateTime timestamp;
+
+    /**
+     * Kafka key of a friendship, the same whichever side sends the event
+     */
+    public static String pairKey(String userId1, String userId2) {
+        return userId1.compareTo(userId2) < 0
+                ? userId1 + "_" + userId2
+                : userId2 + "_" + userId1;
+    }
 }
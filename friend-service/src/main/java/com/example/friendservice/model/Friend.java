@@ -11,10 +11,17 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "friends", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "friend_id"}))
+// InnoDB appends the primary key to secondary indexes, so (user_id, created_at) also orders by id
+@Table(name = "friends",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "friend_id"}),
+        indexes = @Index(name = "idx_friends_user_created", columnList = "user_id, created_at"))
 public class Friend {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // IDENTITY disables JDBC insert batching; on MySQL the sequence is emulated by the friends_seq table
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "friends_seq")
+    @SequenceGenerator(name = "friends_seq", sequenceName = "friends_seq", allocationSize = Friend.ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
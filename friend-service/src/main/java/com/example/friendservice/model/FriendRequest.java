@@ -12,7 +12,9 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "friend_requests")
+@Table(name = "friend_requests",
+        indexes = @Index(name = "idx_friend_requests_receiver_status_created",
+                columnList = "receiver_id, status, created_at"))
 public class FriendRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
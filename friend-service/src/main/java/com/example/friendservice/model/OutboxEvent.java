@@ -0,0 +1,39 @@
+package com.example.friendservice.model;
+
+import lombok.*;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event written in the same transaction as the change it describes and published to Kafka
+ * afterwards by {@link com.example.friendservice.service.FriendEventOutbox}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
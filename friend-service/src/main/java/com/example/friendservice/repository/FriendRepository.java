@@ -6,6 +6,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,14 +15,38 @@ public interface FriendRepository extends JpaRepository<Friend, Long> {
 
     Page<Friend> findFriendsByUserId(String userId, Pageable pageable);
 
+    // First page of a keyset scan: the sort comes from the Pageable and no count query is issued
+    List<Friend> findByUserId(String userId, Pageable pageable);
+
     Optional<Friend> findByUserIdAndFriendId(String userId, String friendId);
 
     boolean existsByUserIdAndFriendId(String userId, String friendId);
 
-    @Query(value = "SELECT * FROM friends WHERE user_id = :userId LIMIT :limit OFFSET :offset",
+    @Query(value = "SELECT * FROM friends WHERE user_id = :userId ORDER BY created_at DESC, id DESC " +
+            "LIMIT :limit OFFSET :offset",
             nativeQuery = true)
     List<Friend> findFriendsPaginated(String userId, int limit, int offset);
 
+    @Query("SELECT f.friendId FROM Friend f WHERE f.userId = :userId")
+    List<String> findFriendIdsByUserId(String userId);
+
+    // Keyset pages after (createdAt, id) / (friendId); each one is a range scan on an index prefixed by user_id.
+    // "x <= :v AND (x < :v OR id < :id)" keeps the range on x usable by MySQL, unlike a plain OR.
+    @Query("SELECT f FROM Friend f WHERE f.userId = :userId AND f.createdAt <= :createdAt " +
+            "AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    List<Friend> findByUserIdBeforeCreatedAt(String userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    @Query("SELECT f FROM Friend f WHERE f.userId = :userId AND f.createdAt >= :createdAt " +
+            "AND (f.createdAt > :createdAt OR f.id > :id) ORDER BY f.createdAt ASC, f.id ASC")
+    List<Friend> findByUserIdAfterCreatedAt(String userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    // friend_id is unique per user, so it is a complete seek key on its own
+    @Query("SELECT f FROM Friend f WHERE f.userId = :userId AND f.friendId < :friendId ORDER BY f.friendId DESC")
+    List<Friend> findByUserIdBeforeFriendId(String userId, String friendId, Pageable pageable);
+
+    @Query("SELECT f FROM Friend f WHERE f.userId = :userId AND f.friendId > :friendId ORDER BY f.friendId ASC")
+    List<Friend> findByUserIdAfterFriendId(String userId, String friendId, Pageable pageable);
+
     @Query("SELECT f FROM Friend f WHERE f.userId = :userId ORDER BY f.favorite DESC, f.createdAt DESC")
     List<Friend> findFriendsSorted(String userId);
 
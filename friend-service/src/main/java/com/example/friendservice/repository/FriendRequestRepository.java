@@ -1,18 +1,30 @@
 package com.example.friendservice.repository;
 
 import com.example.friendservice.model.FriendRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface FriendRequestRepository extends JpaRepository<FriendRequest, Long> {
     List<FriendRequest> findByReceiverIdAndStatus(String receiverId, FriendRequest.RequestStatus status);
+
+    // First page of a keyset scan on idx_friend_requests_receiver_status_created
+    List<FriendRequest> findByReceiverIdAndStatus(String receiverId, FriendRequest.RequestStatus status,
+                                                  Pageable pageable);
+
+    @Query("SELECT r FROM FriendRequest r WHERE r.receiverId = :receiverId AND r.status = :status " +
+            "AND r.createdAt <= :createdAt AND (r.createdAt < :createdAt OR r.id < :id) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<FriendRequest> findByReceiverIdAndStatusBefore(String receiverId, FriendRequest.RequestStatus status,
+                                                        LocalDateTime createdAt, Long id, Pageable pageable);
     List<FriendRequest> findBySenderIdAndStatus(String senderId, FriendRequest.RequestStatus status);
 
     @Query(value = "SELECT * FROM friend_requests WHERE receiver_id = :userId AND status = 'PENDING' " +
-            "ORDER BY created_at DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+            "ORDER BY created_at DESC, id DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
     List<FriendRequest> findPendingRequestsPaginated(String userId, int limit, int offset);
 
     Optional<FriendRequest> findBySenderIdAndReceiverIdAndStatus(
@@ -0,0 +1,16 @@
+package com.example.friendservice.repository;
+
+import com.example.friendservice.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // No SKIP LOCKED: a relay on another instance waits for the oldest batch instead of publishing newer
+    // rows ahead of it, so only one batch is in flight at a time and events of a pair keep their order
+    @Query(value = "SELECT * FROM outbox_events ORDER BY id LIMIT :limit FOR UPDATE",
+            nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(int limit);
+}
@@ -4,7 +4,6 @@ import com.example.friendservice.repository.FriendRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -12,21 +11,36 @@ import java.util.List;
 @Slf4j
 public class FriendAnalyticsService {
     private final FriendRepository friendRepository;
+    private final FriendGraphService friendGraphService;
 
-    public FriendAnalyticsService(FriendRepository friendRepository) {
+    public FriendAnalyticsService(FriendRepository friendRepository, FriendGraphService friendGraphService) {
         this.friendRepository = friendRepository;
+        this.friendGraphService = friendGraphService;
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "mutualFriends", key = "#userId1 + '_' + #userId2")
+    /**
+     * Answered from the in-memory friend graph; the SQL self-join is only used until the graph is loaded
+     */
+    @Cacheable(value = "mutualFriends",
+            key = "#userId1 + '_v' + @friendCacheService.analyticsVersion(#userId1) + '_' + #userId2 + '_v' + @friendCacheService.analyticsVersion(#userId2)",
+            condition = "@friendGraphService.graph() == null")
     public List<String> getMutualFriends(String userId1, String userId2) {
+        FriendGraph graph = friendGraphService.graph();
+        if (graph != null) {
+            return graph.mutualFriends(userId1, userId2);
+        }
         log.info("Finding mutual friends between {} and {}", userId1, userId2);
         return friendRepository.findMutualFriends(userId1, userId2);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "friendSuggestions", key = "#userId + '_limit_' + #limit")
+    @Cacheable(value = "friendSuggestions",
+            key = "#userId + '_v' + @friendCacheService.analyticsVersion(#userId) + '_limit_' + #limit",
+            condition = "@friendGraphService.graph() == null")
     public List<String> getFriendSuggestions(String userId, int limit) {
+        FriendGraph graph = friendGraphService.graph();
+        if (graph != null) {
+            return graph.suggestions(userId, limit);
+        }
         log.info("Getting friend suggestions for user {}", userId);
         return friendRepository.findFriendSuggestions(userId, limit);
     }
@@ -0,0 +1,113 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.config.RedisConfig;
+import com.example.friendservice.dto.FriendEvent;
+import com.example.friendservice.repository.FriendRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Per-user version stamps for the friend caches. The versions are part of the cache keys, so bumping
+ * a user's version retires all of their cached pages at once without touching other users; old entries
+ * simply expire with the cache TTL. The version keys expire too, after twice the cache TTL counted from their
+ * last bump or read, so a version can only restart from 0 once every page cached under it is gone.
+ * <ul>
+ *     <li>"friends" and "friendsScroll" use the friends version, bumped synchronously for both users of an
+ *     accept/remove.</li>
+ *     <li>"mutualFriends" and "friendSuggestions" use the analytics version, bumped from friend events for
+ *     both users and all of their friends, whose mutual counts and suggestions change too.</li>
+ * </ul>
+ */
+@Service("friendCacheService")
+@Slf4j
+public class FriendCacheService {
+
+    private static final String FRIENDS_VERSION_KEY = "cache_version:friends:";
+    private static final String ANALYTICS_VERSION_KEY = "cache_version:friendAnalytics:";
+    static final Duration VERSION_TTL = RedisConfig.CACHE_TTL.multipliedBy(2);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final FriendRepository friendRepository;
+    private final Counter friendsInvalidations;
+    private final Counter analyticsInvalidations;
+
+    public FriendCacheService(StringRedisTemplate stringRedisTemplate,
+                              FriendRepository friendRepository,
+                              MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.friendRepository = friendRepository;
+        this.friendsInvalidations = Counter.builder("cache.invalidations")
+                .description("Per-user version bumps of a cache")
+                .tag("cache", "friends")
+                .register(meterRegistry);
+        this.analyticsInvalidations = Counter.builder("cache.invalidations")
+                .description("Per-user version bumps of a cache")
+                .tag("cache", "friendAnalytics")
+                .register(meterRegistry);
+    }
+
+    public long friendsVersion(String userId) {
+        return version(FRIENDS_VERSION_KEY + userId);
+    }
+
+    public long analyticsVersion(String userId) {
+        return version(ANALYTICS_VERSION_KEY + userId);
+    }
+
+    public void evictFriends(Collection<String> userIds) {
+        bump(FRIENDS_VERSION_KEY, userIds);
+        friendsInvalidations.increment(userIds.size());
+    }
+
+    /**
+     * One instance per event (shared group id) is enough since the versions live in Redis
+     */
+    @KafkaListener(topics = "${kafka.topic.friend-accepted}",
+            groupId = "friend-cache-invalidation",
+            containerFactory = "friendEventContainerFactory")
+    public void onFriendEvent(FriendEvent event) {
+        Set<String> affected = new LinkedHashSet<>();
+        affected.add(event.getSenderId());
+        affected.add(event.getReceiverId());
+        affected.addAll(friendRepository.findFriendIdsByUserId(event.getSenderId()));
+        affected.addAll(friendRepository.findFriendIdsByUserId(event.getReceiverId()));
+
+        bump(ANALYTICS_VERSION_KEY, affected);
+        analyticsInvalidations.increment(affected.size());
+        log.debug("Invalidated friend analytics of {} users after {}", affected.size(), event.getType());
+    }
+
+    private long version(String key) {
+        // GETEX: every read that may precede a cache put also extends the version's lifetime
+        String version = stringRedisTemplate.opsForValue().getAndExpire(key, VERSION_TTL);
+        return version != null ? Long.parseLong(version) : 0;
+    }
+
+    private void bump(String prefix, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<byte[]> keys = userIds.stream()
+                .map(userId -> (prefix + userId).getBytes(StandardCharsets.UTF_8))
+                .toList();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            keys.forEach(key -> {
+                connection.stringCommands().incr(key);
+                connection.keyCommands().expire(key, VERSION_TTL.toSeconds());
+            });
+            return null;
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.dto.FriendEvent;
+import com.example.friendservice.model.OutboxEvent;
+import com.example.friendservice.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox for friend events. {@link #enqueue} stores the event in outbox_events inside the
+ * caller's transaction, so the request path never waits for Kafka and an event is never lost after commit.
+ * A background relay drains the table in batches: it locks the oldest rows, sends them, waits for the
+ * broker acks and deletes them in the same transaction. Relays on other instances block on the same rows
+ * until that transaction ends, so batches are published one after another in id order and the events of
+ * one friendship are never reordered. The relay runs at READ COMMITTED: under MySQL's default REPEATABLE
+ * READ the locking read also takes next-key locks, and once a batch reaches the end of the table every
+ * {@link #enqueue} would wait for the broker acks. A failed batch is rolled back and retried, so delivery is at least
+ * once; the consumers (friend graph, cache invalidation) are idempotent.
+ */
+@Service
+@Slf4j
+public class FriendEventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, FriendEvent> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter publishedEvents;
+    private final int batchSize;
+    private final long sendTimeoutMillis;
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "friend-outbox-relay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public FriendEventOutbox(OutboxEventRepository outboxEventRepository,
+                             KafkaTemplate<String, FriendEvent> kafkaTemplate,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${friend.outbox.batch-size:100}") int batchSize,
+                             @Value("${friend.outbox.poll-interval-ms:200}") long pollIntervalMillis,
+                             @Value("${friend.outbox.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Record locks only, no gap locks: inserts from the request path never wait on the relay
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.publishedEvents = Counter.builder("friend.outbox.published")
+                .description("Friend events relayed from the outbox to Kafka")
+                .register(meterRegistry);
+        this.batchSize = batchSize;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        relay.scheduleWithFixedDelay(this::drainQuietly, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Must be called inside the transaction that makes the change the event describes
+     */
+    public void enqueue(String topic, String key, FriendEvent event) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .topic(topic)
+                .messageKey(key)
+                .payload(toJson(event))
+                .build());
+    }
+
+    private void drainQuietly() {
+        try {
+            int published;
+            do {
+                published = publishBatch();
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes one batch and returns its size; the rows stay locked until the broker has acked every send
+     */
+    int publishBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (OutboxEvent outboxEvent : batch) {
+                sends.add(kafkaTemplate.send(outboxEvent.getTopic(), outboxEvent.getMessageKey(),
+                        fromJson(outboxEvent.getPayload())));
+                ids.add(outboxEvent.getId());
+            }
+            try {
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                        .get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while publishing outbox events", e);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to publish " + batch.size() + " outbox events", e);
+            }
+            outboxEventRepository.deleteAllByIdInBatch(ids);
+            return batch.size();
+        });
+        int count = published != null ? published : 0;
+        publishedEvents.increment(count);
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.shutdown();
+    }
+
+    private String toJson(FriendEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize friend event", e);
+        }
+    }
+
+    private FriendEvent fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, FriendEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read friend event from outbox", e);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.friendservice.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory adjacency of the friends table. User ids are interned to dense ints and every user
+ * keeps a sorted int[] of friend ids, so mutual friends is a sorted-array intersection and
+ * suggestions are counted by sorting the friends-of-friends ids instead of a self-join with GROUP BY.
+ * Adjacency is directed like the friends rows; a friendship adds and removes both directions.
+ */
+public final class FriendGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+    // Below this size ratio, merge both arrays; above it, binary search the larger one
+    private static final int GALLOP_RATIO = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids;
+    private final List<String> userIds;
+    private int[][] adjacency;
+    private long edgeCount;
+
+    public FriendGraph() {
+        this(new HashMap<>(), new ArrayList<>(), new int[1024][], 0);
+    }
+
+    private FriendGraph(Map<String, Integer> ids, List<String> userIds, int[][] adjacency, long edgeCount) {
+        this.ids = ids;
+        this.userIds = userIds;
+        this.adjacency = adjacency;
+        this.edgeCount = edgeCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void addFriendship(String userId, String friendId) {
+        lock.writeLock().lock();
+        try {
+            int user = intern(userId);
+            int friend = intern(friendId);
+            insert(user, friend);
+            insert(friend, user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriendship(String userId, String friendId) {
+        lock.writeLock().lock();
+        try {
+            Integer user = ids.get(userId);
+            Integer friend = ids.get(friendId);
+            if (user != null && friend != null) {
+                delete(user, friend);
+                delete(friend, user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> mutualFriends(String userId1, String userId2) {
+        lock.readLock().lock();
+        try {
+            int[] first = friendsOf(ids.get(userId1));
+            int[] second = friendsOf(ids.get(userId2));
+            int[] common = intersect(first, second);
+            List<String> result = new ArrayList<>(common.length);
+            for (int id : common) {
+                result.add(userIds.get(id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Friends of friends who are not already friends, ordered by the number of mutual friends
+     * (ties by interned id, so results are stable between calls)
+     */
+    public List<String> suggestions(String userId, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer user = ids.get(userId);
+            int[] friends = friendsOf(user);
+            if (friends.length == 0 || limit <= 0) {
+                return List.of();
+            }
+
+            int total = 0;
+            for (int friend : friends) {
+                total += friendsOf(friend).length;
+            }
+            int[] candidates = new int[total];
+            int size = 0;
+            for (int friend : friends) {
+                for (int candidate : friendsOf(friend)) {
+                    if (candidate != user && Arrays.binarySearch(friends, candidate) < 0) {
+                        candidates[size++] = candidate;
+                    }
+                }
+            }
+            Arrays.sort(candidates, 0, size);
+
+            // Keep the top `limit` runs; key = mutual count in the high bits, inverted id in the low bits
+            PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+            for (int i = 0; i < size; ) {
+                int candidate = candidates[i];
+                int run = i;
+                while (run < size && candidates[run] == candidate) {
+                    run++;
+                }
+                top.add(((long) (run - i) << 32) | (Integer.MAX_VALUE - candidate));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+                i = run;
+            }
+
+            List<String> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                result.add(userIds.get(Integer.MAX_VALUE - (int) (top.poll() & 0xFFFFFFFFL)));
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int userCount() {
+        lock.readLock().lock();
+        try {
+            return userIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int[] intersect(int[] first, int[] second) {
+        int[] small = first.length <= second.length ? first : second;
+        int[] large = small == first ? second : first;
+        int[] result = new int[small.length];
+        int size = 0;
+        if ((long) small.length * GALLOP_RATIO < large.length) {
+            int from = 0;
+            for (int value : small) {
+                int index = Arrays.binarySearch(large, from, large.length, value);
+                if (index >= 0) {
+                    result[size++] = value;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[size++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private int[] friendsOf(Integer user) {
+        if (user == null || user >= adjacency.length || adjacency[user] == null) {
+            return NO_FRIENDS;
+        }
+        return adjacency[user];
+    }
+
+    private int intern(String userId) {
+        Integer existing = ids.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int id = userIds.size();
+        ids.put(userId, id);
+        userIds.add(userId);
+        if (id >= adjacency.length) {
+            adjacency = Arrays.copyOf(adjacency, adjacency.length * 2);
+        }
+        return id;
+    }
+
+    private void insert(int user, int friend) {
+        int[] friends = friendsOf(user);
+        int index = Arrays.binarySearch(friends, friend);
+        if (index >= 0) {
+            return;
+        }
+        int position = -index - 1;
+        int[] updated = new int[friends.length + 1];
+        System.arraycopy(friends, 0, updated, 0, position);
+        updated[position] = friend;
+        System.arraycopy(friends, position, updated, position + 1, friends.length - position);
+        adjacency[user] = updated;
+        edgeCount++;
+    }
+
+    private void delete(int user, int friend) {
+        int[] friends = friendsOf(user);
+        int index = Arrays.binarySearch(friends, friend);
+        if (index < 0) {
+            return;
+        }
+        int[] updated = new int[friends.length - 1];
+        System.arraycopy(friends, 0, updated, 0, index);
+        System.arraycopy(friends, index + 1, updated, index, friends.length - index - 1);
+        adjacency[user] = updated;
+        edgeCount--;
+    }
+
+    /**
+     * Bulk loader for the friends table: rows are appended to per-user growable arrays and each
+     * list is sorted and de-duplicated once in {@link #build()}, instead of one sorted insert per row.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> userIds = new ArrayList<>();
+        private int[][] adjacency = new int[1024][];
+        private int[] sizes = new int[1024];
+
+        private Builder() {
+        }
+
+        /**
+         * One directed friends row (user_id -> friend_id)
+         */
+        public Builder addEdge(String userId, String friendId) {
+            int user = intern(userId);
+            int friend = intern(friendId);
+            int[] friends = adjacency[user];
+            if (friends == null) {
+                friends = new int[4];
+            } else if (sizes[user] == friends.length) {
+                friends = Arrays.copyOf(friends, friends.length * 2);
+            }
+            friends[sizes[user]++] = friend;
+            adjacency[user] = friends;
+            return this;
+        }
+
+        public FriendGraph build() {
+            long edges = 0;
+            for (int user = 0; user < userIds.size(); user++) {
+                int[] friends = adjacency[user];
+                if (friends == null) {
+                    continue;
+                }
+                Arrays.sort(friends, 0, sizes[user]);
+                int size = 0;
+                for (int i = 0; i < sizes[user]; i++) {
+                    if (size == 0 || friends[size - 1] != friends[i]) {
+                        friends[size++] = friends[i];
+                    }
+                }
+                adjacency[user] = size == friends.length ? friends : Arrays.copyOf(friends, size);
+                edges += size;
+            }
+            FriendGraph graph = new FriendGraph(ids, userIds, adjacency, edges);
+            adjacency = null;
+            sizes = null;
+            return graph;
+        }
+
+        private int intern(String userId) {
+            Integer existing = ids.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            int id = userIds.size();
+            ids.put(userId, id);
+            userIds.add(userId);
+            if (id >= adjacency.length) {
+                adjacency = Arrays.copyOf(adjacency, adjacency.length * 2);
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+            return id;
+        }
+    }
+}
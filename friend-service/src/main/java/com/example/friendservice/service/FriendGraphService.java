@@ -0,0 +1,115 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.dto.FriendEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the {@link FriendGraph}: loaded from the friends table once the application is ready and kept
+ * current from FRIEND_ACCEPTED / FRIEND_REMOVED events. Every instance consumes the events with its own
+ * group id and replays the compacted, pair-keyed topic from the beginning on assignment, so no event
+ * committed around the table read can be missed however the load and the partition assignment interleave.
+ * Events that arrive while the table is still loading are buffered and applied on top of it; re-applying
+ * the latest event of a pair is idempotent. Until the graph is loaded {@link #graph()} returns null and
+ * callers fall back to SQL.
+ */
+@Service
+@Slf4j
+public class FriendGraphService implements ConsumerSeekAware {
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final boolean enabled;
+    private final List<FriendEvent> pendingEvents = new ArrayList<>();
+    private volatile FriendGraph graph;
+    private boolean loadFailed;
+
+    public FriendGraphService(DataSource dataSource,
+                              @Value("${friend.graph.enabled:true}") boolean enabled) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the whole table
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.enabled = enabled;
+    }
+
+    public FriendGraph graph() {
+        return graph;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            Thread.ofVirtual().name("friend-graph-loader").start(this::load);
+        }
+    }
+
+    void load() {
+        try {
+            long start = System.currentTimeMillis();
+            FriendGraph loaded = readFriendsTable();
+            synchronized (pendingEvents) {
+                pendingEvents.forEach(event -> apply(loaded, event));
+                pendingEvents.clear();
+                graph = loaded;
+            }
+            log.info("Loaded friend graph with {} users and {} edges in {} ms",
+                    loaded.userCount(), loaded.edgeCount(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Failed to load friend graph, analytics stay on SQL", e);
+            synchronized (pendingEvents) {
+                pendingEvents.clear();
+                loadFailed = true;
+            }
+        }
+    }
+
+    FriendGraph readFriendsTable() {
+        FriendGraph.Builder builder = FriendGraph.builder();
+        streamingJdbcTemplate.query("SELECT user_id, friend_id FROM friends",
+                (RowCallbackHandler) rs -> builder.addEdge(rs.getString(1), rs.getString(2)));
+        return builder.build();
+    }
+
+    @KafkaListener(topics = "${kafka.topic.friend-accepted}",
+            groupId = "friend-graph-${random.uuid}",
+            containerFactory = "friendEventContainerFactory",
+            autoStartup = "${friend.graph.enabled:true}")
+    public void onFriendEvent(FriendEvent event) {
+        synchronized (pendingEvents) {
+            if (graph == null) {
+                if (!loadFailed) {
+                    pendingEvents.add(event);
+                }
+                return;
+            }
+        }
+        apply(graph, event);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // The table snapshot may be older or newer than any committed offset: replay every pair's latest event
+        callback.seekToBeginning(assignments.keySet());
+        log.info("Replaying friend events from {} partitions into the friend graph", assignments.size());
+    }
+
+    private static void apply(FriendGraph graph, FriendEvent event) {
+        if (FriendEvent.FRIEND_ACCEPTED.equals(event.getType())) {
+            graph.addFriendship(event.getSenderId(), event.getReceiverId());
+        } else if (FriendEvent.FRIEND_REMOVED.equals(event.getType())) {
+            graph.removeFriendship(event.getSenderId(), event.getReceiverId());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.friendservice.service;
 
+import com.example.friendservice.dto.CursorPage;
 import com.example.friendservice.dto.FriendEvent;
 import com.example.friendservice.exception.BadRequestException;
 import com.example.friendservice.model.Friend;
@@ -9,25 +10,32 @@ import com.example.friendservice.repository.FriendRequestRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class FriendService {
     private final FriendRepository friendRepository;
     private final FriendRequestRepository friendRequestRepository;
-    private final KafkaTemplate<String, FriendEvent> kafkaTemplate;
+    private final FriendEventOutbox friendEventOutbox;
+    private final FriendCacheService friendCacheService;
+
+    // Sort keys backed by an index prefixed by user_id: (user_id, created_at) and the unique (user_id, friend_id)
+    private static final Set<String> INDEXED_SORT_KEYS = Set.of("createdAt", "friendId");
+    static final int MAX_SCROLL_SIZE = 100;
 
     @Value("${kafka.topic.friend-accepted}")
     private String friendAcceptedTopic;
@@ -35,30 +43,128 @@ public class FriendService {
     @Autowired
     public FriendService(FriendRepository friendRepository,
                          FriendRequestRepository friendRequestRepository,
-                         KafkaTemplate<String, FriendEvent> kafkaTemplate) {
+                         FriendEventOutbox friendEventOutbox,
+                         FriendCacheService friendCacheService) {
         this.friendRepository = friendRepository;
         this.friendRequestRepository = friendRequestRepository;
-        this.kafkaTemplate = kafkaTemplate;
+        this.friendEventOutbox = friendEventOutbox;
+        this.friendCacheService = friendCacheService;
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "friends", key = "'user_' + #userId + '_page_' + #page + '_size_' + #size")
+    @Cacheable(value = "friends",
+            key = "'user_' + #userId + '_v' + @friendCacheService.friendsVersion(#userId) + '_page_' + #page + '_size_' + #size")
     public List<Friend> getFriends(String userId, int page, int size) {
         log.info("Retrieving friends from database for user {}", userId);
         return friendRepository.findFriendsPaginated(userId, size, page * size);
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "friends", key = "'user_' + #userId + '_page_' + #page + '_size_' + #size + '_sort_' + #sortBy + '_' + #sortDirection")
+    @Cacheable(value = "friends",
+            key = "'user_' + #userId + '_v' + @friendCacheService.friendsVersion(#userId) + '_page_' + #page + '_size_' + #size + '_sort_' + #sortBy + '_' + #sortDirection")
     public List<Friend> getFriends(String userId, int page, int size, String sortBy, String sortDirection) {
         log.info("Retrieving sorted friends from database for user {}", userId);
-        Sort sort = Sort.by(sortDirection.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
-        return friendRepository.findFriendsByUserId(userId, pageable).getContent();
+        Pageable pageable = PageRequest.of(page, size, seekSort(requireIndexedSortKey(sortBy), isAscending(sortDirection)));
+        return friendRepository.findByUserId(userId, pageable);
+    }
+
+    /**
+     * Keyset (seek) pagination: the cursor holds the sort value and id of the last row, so every page
+     * is a range scan that starts where the previous one ended and deep pages cost the same as the first.
+     * Only the first page is cached.
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(value = "friendsScroll",
+            key = "'user_' + #userId + '_v' + @friendCacheService.friendsVersion(#userId) + '_scroll_' + #size + '_sort_' + #sortBy + '_' + #sortDirection",
+            condition = "#cursor == null")
+    public CursorPage<Friend> scrollFriends(String userId, String cursor, int size, String sortBy, String sortDirection) {
+        requireScrollSize(size);
+        String sortKey = requireIndexedSortKey(sortBy);
+        boolean ascending = isAscending(sortDirection);
+        Pageable limit = PageRequest.of(0, size);
+
+        List<Friend> friends;
+        if (cursor == null) {
+            friends = friendRepository.findByUserId(userId, PageRequest.of(0, size, seekSort(sortKey, ascending)));
+        } else {
+            String[] position = decodeCursor(cursor);
+            if ("friendId".equals(sortKey)) {
+                friends = ascending
+                        ? friendRepository.findByUserIdAfterFriendId(userId, position[0], limit)
+                        : friendRepository.findByUserIdBeforeFriendId(userId, position[0], limit);
+            } else {
+                LocalDateTime createdAt = parseCreatedAt(position[0]);
+                Long id = Long.valueOf(position[1]);
+                friends = ascending
+                        ? friendRepository.findByUserIdAfterCreatedAt(userId, createdAt, id, limit)
+                        : friendRepository.findByUserIdBeforeCreatedAt(userId, createdAt, id, limit);
+            }
+        }
+
+        String nextCursor = null;
+        if (friends.size() == size) {
+            Friend last = friends.get(friends.size() - 1);
+            String value = "friendId".equals(sortKey) ? last.getFriendId() : last.getCreatedAt().toString();
+            nextCursor = encodeCursor(value, last.getId());
+        }
+        return new CursorPage<>(friends, nextCursor);
+    }
+
+    private static void requireScrollSize(int size) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+    }
+
+    private static String requireIndexedSortKey(String sortBy) {
+        if (sortBy == null) {
+            return "createdAt";
+        }
+        if (!INDEXED_SORT_KEYS.contains(sortBy)) {
+            throw new BadRequestException("Unsupported sort key: " + sortBy + ", expected one of " + INDEXED_SORT_KEYS);
+        }
+        return sortBy;
+    }
+
+    private static boolean isAscending(String sortDirection) {
+        return "asc".equalsIgnoreCase(sortDirection);
+    }
+
+    private static Sort seekSort(String sortKey, boolean ascending) {
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        // Ties on created_at are broken by id so that pages never overlap or skip rows
+        return "friendId".equals(sortKey) ? Sort.by(direction, "friendId") : Sort.by(direction, "createdAt", "id");
+    }
+
+    private static LocalDateTime parseCreatedAt(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static String encodeCursor(String value, Long id) {
+        String raw = value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            String[] position = {raw.substring(0, separator), raw.substring(separator + 1)};
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
 
     @Transactional
-    @CacheEvict(value = "friends", allEntries = true)
     public void removeFriend(String userId, String friendId) {
         Friend friend = friendRepository.findByUserIdAndFriendId(userId, friendId)
                 .orElseThrow(() -> new BadRequestException("Friend relationship not found"));
@@ -68,6 +174,9 @@ public class FriendService {
         // Remove reciprocal relationship
         friendRepository.findByUserIdAndFriendId(friendId, userId)
                 .ifPresent(friendRepository::delete);
+
+        evictFriendsAfterCommit(userId, friendId);
+        publishFriendEvent(FriendEvent.FRIEND_REMOVED, userId, friendId);
     }
 
     @Transactional
@@ -92,9 +201,6 @@ public class FriendService {
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "friends", allEntries = true)
-    })
     public void acceptFriendRequest(Long requestId, String userId) {
         FriendRequest request = friendRequestRepository.findById(requestId)
                 .orElseThrow(() -> new BadRequestException("Friend request not found"));
@@ -108,9 +214,8 @@ public class FriendService {
             throw new BadRequestException("Request is not pending");
         }
 
-        // Update request status
+        // Update request status (managed entity, flushed on commit)
         request.setStatus(FriendRequest.RequestStatus.ACCEPTED);
-        friendRequestRepository.save(request);
 
         // Create bidirectional friend relationship
         Friend friend1 = new Friend();
@@ -121,17 +226,37 @@ public class FriendService {
         friend2.setUserId(request.getReceiverId());
         friend2.setFriendId(request.getSenderId());
 
-        friendRepository.save(friend1);
-        friendRepository.save(friend2);
+        // Sequence ids let Hibernate send both rows as one JDBC batch
+        friendRepository.saveAll(List.of(friend1, friend2));
+
+        evictFriendsAfterCommit(request.getSenderId(), request.getReceiverId());
 
-        // Send event to Kafka
+        // Relayed to Kafka from the outbox after commit
+        publishFriendEvent(FriendEvent.FRIEND_ACCEPTED, request.getSenderId(), request.getReceiverId());
+    }
+
+    /**
+     * Only the two users' friend pages change. Bumping after commit keeps a concurrent read from
+     * caching the old list under the new version.
+     */
+    private void evictFriendsAfterCommit(String userId, String friendId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                friendCacheService.evictFriends(List.of(userId, friendId));
+            }
+        });
+    }
+
+    private void publishFriendEvent(String type, String senderId, String receiverId) {
         FriendEvent event = new FriendEvent();
-        event.setType("FRIEND_ACCEPTED");
-        event.setSenderId(request.getSenderId());
-        event.setReceiverId(request.getReceiverId());
+        event.setType(type);
+        event.setSenderId(senderId);
+        event.setReceiverId(receiverId);
         event.setTimestamp(LocalDateTime.now());
 
-        kafkaTemplate.send(friendAcceptedTopic, event);
+        // Keyed by the pair so events of one friendship stay ordered on one partition
+        friendEventOutbox.enqueue(friendAcceptedTopic, FriendEvent.pairKey(senderId, receiverId), event);
     }
 
     @Transactional(readOnly = true)
@@ -139,6 +264,31 @@ public class FriendService {
         return friendRequestRepository.findPendingRequestsPaginated(userId, size, page * size);
     }
 
+    /**
+     * Pending requests newest first, paged by (createdAt, id) on (receiver_id, status, created_at)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FriendRequest> scrollPendingRequests(String userId, String cursor, int size) {
+        requireScrollSize(size);
+        List<FriendRequest> requests;
+        if (cursor == null) {
+            requests = friendRequestRepository.findByReceiverIdAndStatus(userId, FriendRequest.RequestStatus.PENDING,
+                    PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdAt", "id")));
+        } else {
+            String[] position = decodeCursor(cursor);
+            requests = friendRequestRepository.findByReceiverIdAndStatusBefore(userId,
+                    FriendRequest.RequestStatus.PENDING, parseCreatedAt(position[0]), Long.valueOf(position[1]),
+                    PageRequest.of(0, size));
+        }
+
+        String nextCursor = null;
+        if (requests.size() == size) {
+            FriendRequest last = requests.get(requests.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt().toString(), last.getId());
+        }
+        return new CursorPage<>(requests, nextCursor);
+    }
+
     @Transactional
     public void rejectFriendRequest(Long requestId, String userId) {
         FriendRequest request = friendRequestRepository.findById(requestId)
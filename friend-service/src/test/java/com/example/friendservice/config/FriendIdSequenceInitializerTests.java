@@ -0,0 +1,65 @@
+package com.example.friendservice.config;
+
+import com.example.friendservice.model.Friend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * friends_seq as Hibernate emulates it on MySQL (a one-row table) next to a friends table that was
+ * filled by the old AUTO_INCREMENT ids.
+ */
+class FriendIdSequenceInitializerTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE friends (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE friends_seq (next_val BIGINT)");
+        jdbcTemplate.update("INSERT INTO friends_seq VALUES (1)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void movesSequencePastExistingIdsOnce() {
+        jdbcTemplate.update("INSERT INTO friends VALUES (1), (2), (120)");
+        FriendIdSequenceInitializer initializer = new FriendIdSequenceInitializer(jdbcTemplate);
+
+        initializer.alignWithExistingIds();
+        long aligned = nextVal();
+        // Ids handed out after the restart are now ahead of the sequence: a second run leaves it alone
+        jdbcTemplate.update("UPDATE friends_seq SET next_val = ?", aligned + 500);
+        initializer.alignWithExistingIds();
+
+        assertThat(aligned).isEqualTo(120 + Friend.ID_ALLOCATION_SIZE + 1);
+        assertThat(nextVal()).isEqualTo(aligned + 500);
+    }
+
+    @Test
+    void emptyTableStillSkipsOneAllocationBlock() {
+        new FriendIdSequenceInitializer(jdbcTemplate).alignWithExistingIds();
+
+        assertThat(nextVal()).isEqualTo(Friend.ID_ALLOCATION_SIZE + 1);
+    }
+
+    private long nextVal() {
+        return jdbcTemplate.queryForObject("SELECT next_val FROM friends_seq", Long.class);
+    }
+}
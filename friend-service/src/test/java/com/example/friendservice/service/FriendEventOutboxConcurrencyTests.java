@@ -0,0 +1,123 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.config.RedisConfig;
+import com.example.friendservice.dto.FriendEvent;
+import com.example.friendservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox relay on a real database: while a batch waits for its broker acks, a request-path enqueue in
+ * another transaction still commits, and the relay transaction runs at READ COMMITTED so that on MySQL
+ * its locking read takes no gap lock past the end of the table.
+ */
+class FriendEventOutboxConcurrencyTests {
+
+    private static final String TOPIC = "friend-accepted-topic";
+
+    private EmbeddedDatabase database;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private OutboxEventRepository outboxEventRepository;
+    private TransactionTemplate requestTransaction;
+    private KafkaTemplate<String, FriendEvent> kafkaTemplate;
+    private FriendEventOutbox outbox;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(database);
+        entityManagerFactory.setPackagesToScan("com.example.friendservice.model");
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        entityManagerFactory.afterPropertiesSet();
+        EntityManagerFactory emf = entityManagerFactory.getObject();
+
+        outboxEventRepository = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(emf))
+                .getRepository(OutboxEventRepository.class);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        requestTransaction = new TransactionTemplate(transactionManager);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        // The scheduled relay never fires during a test; batches are published explicitly
+        outbox = new FriendEventOutbox(outboxEventRepository, kafkaTemplate, new RedisConfig().objectMapper(),
+                transactionManager, new SimpleMeterRegistry(), 100, 3_600_000, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+        entityManagerFactory.destroy();
+        database.shutdown();
+    }
+
+    @Test
+    void enqueueCommitsWhileTheRelayWaitsForAcks() throws Exception {
+        enqueue("a_b", event("a", "b"));
+
+        CompletableFuture<SendResult<String, FriendEvent>> ack = new CompletableFuture<>();
+        CountDownLatch sending = new CountDownLatch(1);
+        AtomicReference<Integer> relayIsolation = new AtomicReference<>();
+        when(kafkaTemplate.send(anyString(), anyString(), any(FriendEvent.class))).thenAnswer(invocation -> {
+            relayIsolation.set(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+            sending.countDown();
+            return ack;
+        });
+
+        CompletableFuture<Integer> relay = CompletableFuture.supplyAsync(outbox::publishBatch);
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The relay still holds its batch locked; a new event past the end of the table must not wait for it
+        CompletableFuture.runAsync(() -> enqueue("c_d", event("c", "d"))).get(5, TimeUnit.SECONDS);
+        assertThat(relay).isNotDone();
+
+        ack.complete(null);
+        assertThat(relay.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(outboxEventRepository.findAll()).singleElement()
+                .satisfies(row -> assertThat(row.getMessageKey()).isEqualTo("c_d"));
+        assertThat(relayIsolation.get()).isEqualTo(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    private void enqueue(String key, FriendEvent event) {
+        requestTransaction.executeWithoutResult(status -> outbox.enqueue(TOPIC, key, event));
+    }
+
+    private static FriendEvent event(String senderId, String receiverId) {
+        FriendEvent event = new FriendEvent();
+        event.setType(FriendEvent.FRIEND_ACCEPTED);
+        event.setSenderId(senderId);
+        event.setReceiverId(receiverId);
+        return event;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.config.RedisConfig;
+import com.example.friendservice.dto.FriendEvent;
+import com.example.friendservice.model.Friend;
+import com.example.friendservice.model.FriendRequest;
+import com.example.friendservice.model.OutboxEvent;
+import com.example.friendservice.repository.FriendRepository;
+import com.example.friendservice.repository.FriendRequestRepository;
+import com.example.friendservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox relay against an in-memory outbox_events table: events are relayed in id order and deleted
+ * once acked, a failed batch is rolled back and published again on the next run, and accepting a
+ * request writes both friend rows in one saveAll together with its outbox event.
+ */
+class FriendEventOutboxTests {
+
+    private static final String TOPIC = "friend-accepted-topic";
+
+    private final List<OutboxEvent> table = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private OutboxEventRepository outboxEventRepository;
+    private KafkaTemplate<String, FriendEvent> kafkaTemplate;
+    private PlatformTransactionManager transactionManager;
+    private FriendEventOutbox outbox;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        doAnswer(invocation -> {
+            OutboxEvent event = invocation.getArgument(0);
+            event.setId(ids.incrementAndGet());
+            table.add(event);
+            return event;
+        }).when(outboxEventRepository).save(any(OutboxEvent.class));
+        when(outboxEventRepository.lockNextBatch(anyInt())).thenAnswer(invocation ->
+                new ArrayList<>(table.subList(0, Math.min(invocation.<Integer>getArgument(0), table.size()))));
+        doAnswer(invocation -> {
+            Collection<Long> deleted = invocation.getArgument(0);
+            table.removeIf(event -> deleted.contains(event.getId()));
+            return null;
+        }).when(outboxEventRepository).deleteAllByIdInBatch(any());
+
+        kafkaTemplate = mock(KafkaTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // The scheduled relay never fires during a test; batches are published explicitly
+        outbox = new FriendEventOutbox(outboxEventRepository, kafkaTemplate, new RedisConfig().objectMapper(),
+                transactionManager, new SimpleMeterRegistry(), 2, 3_600_000, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+    }
+
+    @Test
+    void relaysInIdOrderAndDeletesAfterAck() {
+        acks(CompletableFuture.completedFuture(null));
+        outbox.enqueue(TOPIC, "a_b", event(FriendEvent.FRIEND_ACCEPTED, "a", "b"));
+        outbox.enqueue(TOPIC, "a_b", event(FriendEvent.FRIEND_REMOVED, "a", "b"));
+        outbox.enqueue(TOPIC, "c_d", event(FriendEvent.FRIEND_ACCEPTED, "c", "d"));
+
+        assertThat(outbox.publishBatch()).isEqualTo(2);
+        assertThat(outbox.publishBatch()).isEqualTo(1);
+        assertThat(outbox.publishBatch()).isZero();
+
+        ArgumentCaptor<FriendEvent> sent = ArgumentCaptor.forClass(FriendEvent.class);
+        verify(kafkaTemplate, times(3)).send(eq(TOPIC), anyString(), sent.capture());
+        assertThat(sent.getAllValues()).extracting(FriendEvent::getType)
+                .containsExactly(FriendEvent.FRIEND_ACCEPTED, FriendEvent.FRIEND_REMOVED, FriendEvent.FRIEND_ACCEPTED);
+        assertThat(table).isEmpty();
+    }
+
+    @Test
+    void failedBatchIsRolledBackAndRetried() {
+        outbox.enqueue(TOPIC, "a_b", event(FriendEvent.FRIEND_ACCEPTED, "a", "b"));
+        acks(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        assertThatThrownBy(() -> outbox.publishBatch()).isInstanceOf(IllegalStateException.class);
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+        verify(transactionManager).rollback(any());
+        assertThat(table).hasSize(1);
+
+        acks(CompletableFuture.completedFuture(null));
+        assertThat(outbox.publishBatch()).isEqualTo(1);
+        verify(kafkaTemplate, times(2)).send(eq(TOPIC), eq("a_b"), any(FriendEvent.class));
+        assertThat(table).isEmpty();
+    }
+
+    @Test
+    void acceptWritesBothFriendRowsInOneBatchAndEnqueuesTheEvent() {
+        FriendRepository friendRepository = mock(FriendRepository.class);
+        FriendRequestRepository friendRequestRepository = mock(FriendRequestRepository.class);
+        FriendRequest request = new FriendRequest();
+        request.setId(7L);
+        request.setSenderId("bob");
+        request.setReceiverId("alice");
+        request.setStatus(FriendRequest.RequestStatus.PENDING);
+        when(friendRequestRepository.findById(7L)).thenReturn(Optional.of(request));
+        FriendService friendService = new FriendService(friendRepository, friendRequestRepository, outbox,
+                mock(FriendCacheService.class));
+        ReflectionTestUtils.setField(friendService, "friendAcceptedTopic", TOPIC);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            friendService.acceptFriendRequest(7L, "alice");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Friend>> saved = ArgumentCaptor.forClass(List.class);
+        verify(friendRepository).saveAll(saved.capture());
+        verify(friendRepository, never()).save(any());
+        assertThat(saved.getValue()).extracting(Friend::getUserId).containsExactly("bob", "alice");
+        assertThat(table).singleElement().satisfies(row -> {
+            assertThat(row.getTopic()).isEqualTo(TOPIC);
+            assertThat(row.getMessageKey()).isEqualTo(FriendEvent.pairKey("alice", "bob"));
+        });
+
+        acks(CompletableFuture.completedFuture(null));
+        assertThat(outbox.publishBatch()).isEqualTo(1);
+        assertThat(table).isEmpty();
+    }
+
+    private void acks(CompletableFuture<SendResult<String, FriendEvent>> result) {
+        when(kafkaTemplate.send(anyString(), anyString(), any(FriendEvent.class))).thenReturn(result);
+    }
+
+    private static FriendEvent event(String type, String senderId, String receiverId) {
+        FriendEvent event = new FriendEvent();
+        event.setType(type);
+        event.setSenderId(senderId);
+        event.setReceiverId(receiverId);
+        return event;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.dto.FriendEvent;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class FriendGraphServiceTests {
+
+    @Test
+    void replaysCompactedTopicFromTheBeginningOnAssignment() {
+        FriendGraphService service = new FriendGraphService(mock(DataSource.class), true);
+        ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+        Map<TopicPartition, Long> assignments = Map.of(
+                new TopicPartition("friend-accepted-topic", 0), 42L,
+                new TopicPartition("friend-accepted-topic", 1), 7L);
+
+        service.onPartitionsAssigned(assignments, callback);
+
+        verify(callback).seekToBeginning(assignments.keySet());
+    }
+
+    @Test
+    void eventsArrivingDuringTheLoadAreAppliedOnTopOfTheTable() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FriendGraphService service = new FriendGraphService(mock(DataSource.class), true) {
+            @Override
+            FriendGraph readFriendsTable() {
+                reading.countDown();
+                await(release);
+                // Snapshot taken before the events below were committed
+                return FriendGraph.builder()
+                        .addEdge("alice", "bob").addEdge("bob", "alice")
+                        .addEdge("alice", "carol").addEdge("carol", "alice")
+                        .build();
+            }
+        };
+
+        Thread loader = Thread.ofVirtual().start(service::load);
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.graph()).isNull();
+
+        service.onFriendEvent(event(FriendEvent.FRIEND_REMOVED, "carol", "alice"));
+        service.onFriendEvent(event(FriendEvent.FRIEND_ACCEPTED, "alice", "dave"));
+        // Replayed from the beginning of the topic: already part of the snapshot
+        service.onFriendEvent(event(FriendEvent.FRIEND_ACCEPTED, "alice", "bob"));
+        release.countDown();
+        loader.join(5_000);
+
+        FriendGraph graph = service.graph();
+        assertThat(graph).isNotNull();
+        assertThat(graph.mutualFriends("bob", "dave")).containsExactly("alice");
+        assertThat(graph.mutualFriends("bob", "carol")).isEmpty();
+        assertThat(graph.edgeCount()).isEqualTo(4);
+
+        // Once loaded, events go straight to the graph
+        service.onFriendEvent(event(FriendEvent.FRIEND_REMOVED, "alice", "bob"));
+        assertThat(graph.mutualFriends("bob", "dave")).isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static FriendEvent event(String type, String senderId, String receiverId) {
+        FriendEvent event = new FriendEvent();
+        event.setType(type);
+        event.setSenderId(senderId);
+        event.setReceiverId(receiverId);
+        return event;
+    }
+}
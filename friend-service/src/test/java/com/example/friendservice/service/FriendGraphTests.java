@@ -0,0 +1,64 @@
+package com.example.friendservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTests {
+
+    @Test
+    void mutualFriendsIntersectBothFriendLists() {
+        FriendGraph graph = FriendGraph.builder()
+                .addEdge("alice", "carol").addEdge("carol", "alice")
+                .addEdge("alice", "dave").addEdge("dave", "alice")
+                .addEdge("bob", "carol").addEdge("carol", "bob")
+                .addEdge("bob", "erin").addEdge("erin", "bob")
+                .build();
+
+        assertThat(graph.mutualFriends("alice", "bob")).containsExactly("carol");
+        assertThat(graph.mutualFriends("alice", "unknown")).isEmpty();
+        assertThat(graph.edgeCount()).isEqualTo(8);
+    }
+
+    @Test
+    void suggestionsAreOrderedByMutualFriendCountAndExcludeFriends() {
+        FriendGraph graph = new FriendGraph();
+        graph.addFriendship("alice", "bob");
+        graph.addFriendship("alice", "carol");
+        graph.addFriendship("alice", "dave");
+        // frank shares two friends with alice, erin one, dave is already her friend
+        graph.addFriendship("frank", "bob");
+        graph.addFriendship("frank", "carol");
+        graph.addFriendship("erin", "dave");
+        graph.addFriendship("bob", "dave");
+
+        assertThat(graph.suggestions("alice", 10)).containsExactly("frank", "erin");
+        assertThat(graph.suggestions("alice", 1)).containsExactly("frank");
+    }
+
+    @Test
+    void removedFriendshipNoLongerCounts() {
+        FriendGraph graph = new FriendGraph();
+        graph.addFriendship("alice", "bob");
+        graph.addFriendship("bob", "carol");
+        graph.addFriendship("alice", "bob");
+
+        graph.removeFriendship("bob", "alice");
+
+        assertThat(graph.suggestions("alice", 10)).isEmpty();
+        assertThat(graph.mutualFriends("alice", "carol")).isEmpty();
+        assertThat(graph.edgeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void intersectionSwitchesToBinarySearchForSkewedSizes() {
+        int[] small = {3, 500, 999};
+        int[] large = new int[1000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = i;
+        }
+
+        assertThat(FriendGraph.intersect(small, large)).containsExactly(3, 500, 999);
+        assertThat(FriendGraph.intersect(large, new int[]{1000})).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.friendservice.service;
+
+import com.example.friendservice.config.RedisConfig;
+import com.example.friendservice.controller.FriendController;
+import com.example.friendservice.dto.CursorPage;
+import com.example.friendservice.exception.GlobalExceptionHandler;
+import com.example.friendservice.model.Friend;
+import com.example.friendservice.repository.FriendRepository;
+import com.example.friendservice.repository.FriendRequestRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Keyset pagination of the friend list: cursors, ties on created_at, input validation (400) and the
+ * typed serializer of the "friendsScroll" cache.
+ */
+class FriendScrollTests {
+
+    private final LocalDateTime acceptedAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+    private FriendRepository friendRepository;
+    private FriendService friendService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        friendRepository = mock(FriendRepository.class);
+        friendService = new FriendService(friendRepository, mock(FriendRequestRepository.class),
+                mock(FriendEventOutbox.class), mock(FriendCacheService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(new FriendController(friendService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void pagesContinueAfterTheLastRowEvenWhenCreatedAtTies() {
+        // All three friendships were accepted at the same instant: only the id tells the pages apart
+        when(friendRepository.findByUserId("alice", PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt", "id"))))
+                .thenReturn(List.of(friend(3L, "dave", acceptedAt), friend(2L, "carol", acceptedAt)));
+        when(friendRepository.findByUserIdBeforeCreatedAt("alice", acceptedAt, 2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(friend(1L, "bob", acceptedAt)));
+
+        CursorPage<Friend> first = friendService.scrollFriends("alice", null, 2, "createdAt", "desc");
+        CursorPage<Friend> next = friendService.scrollFriends("alice", first.getNextCursor(), 2, "createdAt", "desc");
+
+        assertThat(first.getItems()).extracting(Friend::getFriendId).containsExactly("dave", "carol");
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(next.getItems()).extracting(Friend::getFriendId).containsExactly("bob");
+        assertThat(next.getNextCursor()).isNull();
+    }
+
+    @Test
+    void friendIdSortSeeksOnTheFriendIdAlone() {
+        when(friendRepository.findByUserId(eq("alice"), any(Pageable.class)))
+                .thenReturn(List.of(friend(7L, "bob", acceptedAt)));
+        when(friendRepository.findByUserIdAfterFriendId("alice", "bob", PageRequest.of(0, 1)))
+                .thenReturn(List.of(friend(4L, "carol", acceptedAt)));
+
+        CursorPage<Friend> first = friendService.scrollFriends("alice", null, 1, "friendId", "asc");
+        CursorPage<Friend> next = friendService.scrollFriends("alice", first.getNextCursor(), 1, "friendId", "asc");
+
+        assertThat(next.getItems()).extracting(Friend::getFriendId).containsExactly("carol");
+    }
+
+    @Test
+    void rejectsBadCursorWith400() throws Exception {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("2025-01-01T12:00".getBytes(StandardCharsets.UTF_8));
+        String badId = Base64.getUrlEncoder().encodeToString("2025-01-01T12:00|x".getBytes(StandardCharsets.UTF_8));
+        String badDate = Base64.getUrlEncoder().encodeToString("yesterday|1".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : List.of("not base64!", noSeparator, badId, badDate)) {
+            mockMvc.perform(get("/scroll").header("X-User-ID", "alice").param("cursor", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void rejectsSortKeyWithoutIndexWith400() throws Exception {
+        mockMvc.perform(get("/scroll").header("X-User-ID", "alice").param("sortBy", "nickname"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsPageSizeOutOfRangeWith400() throws Exception {
+        for (String size : List.of("0", "-1", String.valueOf(FriendService.MAX_SCROLL_SIZE + 1))) {
+            mockMvc.perform(get("/scroll").header("X-User-ID", "alice").param("size", size))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/requests/pending/scroll").header("X-User-ID", "alice").param("size", size))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void cachedPageIsReadBackAsCursorPageOfFriends() {
+        RedisConfig redisConfig = new RedisConfig();
+        ObjectMapper objectMapper = redisConfig.objectMapper();
+        RedisCacheManager cacheManager = redisConfig.cacheManager(mock(RedisConnectionFactory.class), objectMapper);
+        cacheManager.afterPropertiesSet();
+        RedisCacheConfiguration config = cacheManager.getCacheConfigurations().get("friendsScroll");
+        CursorPage<Friend> page = new CursorPage<>(List.of(friend(3L, "dave", acceptedAt)), "cursor");
+
+        ByteBuffer cached = config.getValueSerializationPair().write(page);
+        Object read = config.getValueSerializationPair().read(cached);
+
+        assertThat(read).isInstanceOf(CursorPage.class).isEqualTo(page);
+        assertThat(((CursorPage<?>) read).getItems().get(0)).isInstanceOf(Friend.class);
+    }
+
+    private static Friend friend(Long id, String friendId, LocalDateTime createdAt) {
+        return Friend.builder()
+                .id(id)
+                .userId("alice")
+                .friendId(friendId)
+                .favorite(false)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+}
@@ -21,6 +21,9 @@ class ChatService {
     this.messageCallbacks = new Map();
     this.reconnectAttempts = 0;
     this.maxReconnectAttempts = 5;
+    // ID các tin nhắn đã nhận gần đây, dùng làm khóa idempotency khi tin được giao lại (kết nối lại, chuyển node)
+    this.seenMessageIds = new Set();
+    this.maxSeenMessageIds = 1000;
 
     window.addEventListener('beforeunload', this.handleWindowClose.bind(this));
   }
@@ -292,6 +295,9 @@ class ChatService {
         console.log(`===== NHẬN TIN NHẮN WEBSOCKET =====`);
         try {
           const messageData = JSON.parse(message.body);
+          if (this.isDuplicateMessage(messageData)) {
+            return;
+          }
           callback(messageData);
         } catch (e) {
           console.error('Lỗi khi xử lý tin nhắn:', e);
@@ -309,6 +315,26 @@ class ChatService {
   }
 
 
+  /**
+   * Kiểm tra tin nhắn đã được nhận trước đó hay chưa (theo id tin nhắn)
+   * @param {Object} messageData - Tin nhắn nhận được
+   * @returns {boolean} - true nếu là bản trùng
+   */
+  isDuplicateMessage(messageData) {
+    if (!messageData || !messageData.id) {
+      return false;
+    }
+    if (this.seenMessageIds.has(messageData.id)) {
+      return true;
+    }
+    this.seenMessageIds.add(messageData.id);
+    if (this.seenMessageIds.size > this.maxSeenMessageIds) {
+      // Set giữ thứ tự chèn nên phần tử đầu tiên là id cũ nhất
+      this.seenMessageIds.delete(this.seenMessageIds.values().next().value);
+    }
+    return false;
+  }
+
   /**
  * Đăng ký nhận tin nhắn nhóm
  * @param {string} conversationId - ID của cuộc trò chuyện nhóm
@@ -351,6 +377,9 @@ class ChatService {
         console.log(`===== NHẬN TIN NHẮN NHÓM WEBSOCKET (${conversationId}) =====`);
         try {
           const messageData = JSON.parse(message.body);
+          if (this.isDuplicateMessage(messageData)) {
+            return;
+          }
           callback(messageData);
 
           // Chỉ broadcast nếu callback khác với messageCallbacks.get('group')
@@ -651,6 +680,30 @@ async sendGroupMessage(conversationId, content, options = {}) {
     return response.data;
   }
 
+  /**
+   * Lấy số tin chưa đọc của mọi cuộc trò chuyện của người dùng hiện tại trong một lần gọi
+   * @returns {Promise<Object>} - Map conversationId -> số tin chưa đọc
+   */
+  async getUnreadCounts() {
+    const response = await chatClient.get(`/unread-counts`);
+    return response.data;
+  }
+
+  /**
+   * Lấy một trang hộp thư (cuộc trò chuyện kèm tin nhắn cuối và số tin chưa đọc) trong một lần gọi
+   * @param {string|null} cursor - nextCursor của trang trước, null cho trang đầu
+   * @param {number} size - Số cuộc trò chuyện mỗi trang
+   * @returns {Promise<Object>} - { conversations, nextCursor }
+   */
+  async getInbox(cursor = null, size = 20) {
+    const params = { size };
+    if (cursor) {
+      params.cursor = cursor;
+    }
+    const response = await chatClient.get(`/conversations/inbox`, { params });
+    return response.data;
+  }
+
   /**
    * Lấy danh sách tin nhắn gần đây
    * @param {string} userId - ID người dùng
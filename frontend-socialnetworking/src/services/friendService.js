@@ -35,6 +35,33 @@ export const getFriendsList = async (userId, page = 0, size = 20) => {
   }
 };
 
+/**
+ * Get user's friends list with cursor pagination (every page costs the same as the first)
+ * @param {string} userId - User ID
+ * @param {string|null} cursor - nextCursor of the previous page, null for the first page
+ * @param {number} size - Page size (default: 20)
+ * @returns {Promise} - Promise with { items, nextCursor }
+ */
+export const scrollFriendsList = async (userId, cursor = null, size = 20) => {
+  try {
+    const params = { size };
+    if (cursor) {
+      params.cursor = cursor;
+    }
+    const response = await friendClient.get(`/scroll`, {
+      params,
+      headers: {
+        'X-User-ID': userId,
+        'Authorization': `Bearer ${token}`,
+      }
+    });
+    return response.data;
+  } catch (error) {
+    console.error('Error fetching friends list:', error);
+    throw error;
+  }
+};
+
 /**
  * Send friend request to user
  * @param {string} senderId - Current user ID
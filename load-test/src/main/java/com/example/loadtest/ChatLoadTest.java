@@ -0,0 +1,238 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mở N session SockJS/STOMP tới /ws, mỗi người dùng đăng ký /user/queue/messages và /topic/group/{id}
+ * của nhóm mình, gửi tin qua /app/chat.private.{receiverId} và /app/chat.group.{conversationId}
+ * với tốc độ cố định, rồi báo cáo phân vị độ trễ giao tin, tin mất và tin trùng.
+ * Kết nối ở chế độ dev (header X-User-Id), xem JwtChannelInterceptor.
+ */
+@Slf4j
+public final class ChatLoadTest {
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+
+    private final LoadTestOptions options;
+    private final LoadTestTopology topology;
+    private final DeliveryTracker tracker = new DeliveryTracker();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+    private final AtomicReferenceArray<StompSession> sessions;
+    private final WebSocketStompClient stompClient;
+    // Chỉ số người dùng đã kết nối và số thành viên đã kết nối của từng nhóm
+    private int[] connectedUsers;
+    private int[] connectedGroupMembers;
+
+    private ChatLoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.topology = new LoadTestTopology(options.users(), options.groups());
+        this.sessions = new AtomicReferenceArray<>(options.users());
+        this.stompClient = new WebSocketStompClient(new SockJsClient(
+                List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        // Không dùng heartbeat để mỗi session chỉ có đúng một luồng ghi (luồng gửi tải)
+        stompClient.setDefaultHeartbeat(new long[]{0, 0});
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LoadReport report = new ChatLoadTest(options).run();
+
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(Path.of(options.report()).toFile(), report);
+        log.info("Đã gửi {} tin, giao {}/{} (mất {}, trùng {}), độ trễ ms p50={} p99={} p99.9={} max={}",
+                report.sent(), report.delivered(), report.expectedDeliveries(), report.lost(), report.duplicates(),
+                report.latencyMillis().p50(), report.latencyMillis().p99(), report.latencyMillis().p999(),
+                report.latencyMillis().max());
+        log.info("Báo cáo: {}", Path.of(options.report()).toAbsolutePath());
+        System.exit(0);
+    }
+
+    private LoadReport run() throws InterruptedException {
+        connectAll();
+        indexConnected();
+        log.info("{} / {} session đã kết nối", connectedUsers.length, options.users());
+        if (connectedUsers.length < 2) {
+            throw new IllegalStateException("Không đủ session để gửi tin");
+        }
+
+        // SimpleBroker không gửi RECEIPT cho SUBSCRIBE nên chờ một khoảng để các đăng ký được xử lý
+        Thread.sleep(options.settleMillis());
+
+        ScheduledExecutorService senders = Executors.newScheduledThreadPool(options.sendThreads());
+        long periodMicros = Math.max(1, (long) (TimeUnit.SECONDS.toMicros(1) / options.ratePerUser()));
+        for (int userIndex : connectedUsers) {
+            long initialDelay = ThreadLocalRandom.current().nextLong(periodMicros);
+            senders.scheduleAtFixedRate(() -> sendOne(userIndex), initialDelay, periodMicros, TimeUnit.MICROSECONDS);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds()));
+        senders.shutdownNow();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+
+        log.info("Đã dừng gửi, chờ {}s để nhận nốt tin", options.drainSeconds());
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.drainSeconds()));
+
+        LoadReport report = LoadReport.of(options, connectedUsers.length,
+                connectFailures.sum(), transportErrors.sum(), tracker);
+        disconnectAll();
+        return report;
+    }
+
+    private void connectAll() throws InterruptedException {
+        Semaphore permits = new Semaphore(options.connectConcurrency());
+        List<CompletableFuture<StompSession>> pending = new ArrayList<>(options.users());
+        for (int i = 0; i < options.users(); i++) {
+            int userIndex = i;
+            String userId = topology.userId(i);
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("X-User-Id", userId);
+
+            permits.acquire();
+            pending.add(stompClient.connectAsync(options.url(), new WebSocketHttpHeaders(), connectHeaders,
+                            new SessionHandler(userId))
+                    .orTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .whenComplete((session, error) -> {
+                        permits.release();
+                        if (error != null) {
+                            connectFailures.increment();
+                            log.warn("Không thể kết nối {}: {}", userId, error.getMessage());
+                            return;
+                        }
+                        subscribe(session, userIndex);
+                        sessions.set(userIndex, session);
+                    }));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> null)
+                .join();
+    }
+
+    private void subscribe(StompSession session, int userIndex) {
+        String userId = topology.userId(userIndex);
+        session.subscribe("/user/queue/messages", new DeliveryHandler(userId));
+        int group = topology.groupOf(userIndex);
+        if (group >= 0) {
+            session.subscribe("/topic/group/" + topology.groupId(group), new DeliveryHandler(userId));
+        }
+    }
+
+    private void indexConnected() {
+        connectedGroupMembers = new int[options.groups()];
+        List<Integer> connected = new ArrayList<>();
+        for (int i = 0; i < options.users(); i++) {
+            if (sessions.get(i) != null) {
+                connected.add(i);
+                int group = topology.groupOf(i);
+                if (group >= 0) {
+                    connectedGroupMembers[group]++;
+                }
+            }
+        }
+        connectedUsers = connected.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void sendOne(int userIndex) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StompSession session = sessions.get(userIndex);
+        int group = topology.groupOf(userIndex);
+        String destination;
+        int recipients;
+        if (group >= 0 && random.nextDouble() < options.groupRatio()) {
+            destination = "/app/chat.group." + topology.groupId(group);
+            // Người gửi cũng đăng ký topic của nhóm nên cũng nhận lại tin của chính mình
+            recipients = connectedGroupMembers[group];
+        } else {
+            int receiver;
+            do {
+                receiver = connectedUsers[random.nextInt(connectedUsers.length)];
+            } while (receiver == userIndex);
+            destination = "/app/chat.private." + topology.userId(receiver);
+            recipients = 1;
+        }
+
+        String token = tracker.register(recipients);
+        try {
+            session.send(destination, Map.of("content", token, "type", "text"));
+        } catch (RuntimeException e) {
+            // Ngoại lệ không được thoát ra ngoài, nếu không lịch gửi của người dùng này sẽ bị hủy
+            tracker.sendFailed(recipients);
+            log.debug("Gửi thất bại từ {}: {}", topology.userId(userIndex), e.getMessage());
+        }
+    }
+
+    private void disconnectAll() {
+        for (int i = 0; i < sessions.length(); i++) {
+            StompSession session = sessions.get(i);
+            if (session != null && session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        stompClient.stop();
+    }
+
+    private final class SessionHandler extends StompSessionHandlerAdapter {
+        private final String userId;
+
+        SessionHandler(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command,
+                                    StompHeaders headers, byte[] payload, Throwable exception) {
+            log.warn("Lỗi xử lý frame của {}: {}", userId, exception.getMessage());
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            transportErrors.increment();
+            log.debug("Lỗi transport của {}: {}", userId, exception.getMessage());
+        }
+    }
+
+    private final class DeliveryHandler implements StompFrameHandler {
+        private final String userId;
+
+        DeliveryHandler(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            Object content = payload instanceof Map<?, ?> message ? message.get("content") : null;
+            tracker.received(userId, content != null ? content.toString() : null);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Theo dõi từng lần giao tin theo cặp (tin nhắn, người nhận): lần nhận đầu tiên ghi độ trễ,
+ * các lần sau là bản trùng, cặp không bao giờ tới là tin bị mất.
+ */
+public class DeliveryTracker {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final AtomicLong sequence = new AtomicLong();
+    // token -> thời điểm gửi (nanoTime)
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+    private final Histogram latencyMicros = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder unexpected = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+
+    /**
+     * Đăng ký một tin nhắn sắp gửi và trả về token đặt vào nội dung tin nhắn
+     */
+    public String register(int expectedRecipients) {
+        String token = "lt:" + sequence.incrementAndGet();
+        sentAt.put(token, System.nanoTime());
+        sent.increment();
+        expected.add(expectedRecipients);
+        return token;
+    }
+
+    public void sendFailed(int expectedRecipients) {
+        sendFailures.increment();
+        expected.add(-expectedRecipients);
+    }
+
+    public void received(String recipientId, String token) {
+        long now = System.nanoTime();
+        Long start = token != null ? sentAt.get(token) : null;
+        if (start == null) {
+            unexpected.increment();
+            return;
+        }
+        if (!delivered.add(token + "|" + recipientId)) {
+            duplicates.increment();
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(now - start);
+        latencyMicros.recordValue(Math.min(Math.max(micros, 0), MAX_LATENCY_MICROS));
+    }
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    public long expected() {
+        return expected.sum();
+    }
+
+    public long delivered() {
+        return delivered.size();
+    }
+
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    public long unexpected() {
+        return unexpected.sum();
+    }
+
+    public long sendFailures() {
+        return sendFailures.sum();
+    }
+
+    public Histogram latencyMicros() {
+        return latencyMicros;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Kết quả một lần chạy, được ghi ra file JSON để so sánh giữa các lần chạy
+ */
+public record LoadReport(
+        int users,
+        int groups,
+        double ratePerUser,
+        double groupRatio,
+        int durationSeconds,
+        int connectedSessions,
+        long connectFailures,
+        long transportErrors,
+        long sent,
+        long sendFailures,
+        long expectedDeliveries,
+        long delivered,
+        long lost,
+        double lossRatio,
+        long duplicates,
+        long unexpected,
+        double deliveriesPerSecond,
+        Latency latencyMillis) {
+
+    public record Latency(double p50, double p90, double p99, double p999, double max, double mean) {
+
+        static Latency of(Histogram micros) {
+            if (micros.getTotalCount() == 0) {
+                return new Latency(0, 0, 0, 0, 0, 0);
+            }
+            return new Latency(
+                    micros.getValueAtPercentile(50) / 1000.0,
+                    micros.getValueAtPercentile(90) / 1000.0,
+                    micros.getValueAtPercentile(99) / 1000.0,
+                    micros.getValueAtPercentile(99.9) / 1000.0,
+                    micros.getMaxValue() / 1000.0,
+                    micros.getMean() / 1000.0);
+        }
+    }
+
+    static LoadReport of(LoadTestOptions options, int connectedSessions, long connectFailures,
+                         long transportErrors, DeliveryTracker tracker) {
+        long expected = tracker.expected();
+        long delivered = tracker.delivered();
+        long lost = Math.max(expected - delivered, 0);
+        return new LoadReport(
+                options.users(),
+                options.groups(),
+                options.ratePerUser(),
+                options.groupRatio(),
+                options.durationSeconds(),
+                connectedSessions,
+                connectFailures,
+                transportErrors,
+                tracker.sent(),
+                tracker.sendFailures(),
+                expected,
+                delivered,
+                lost,
+                expected == 0 ? 0 : (double) lost / expected,
+                tracker.duplicates(),
+                tracker.unexpected(),
+                (double) delivered / options.durationSeconds(),
+                Latency.of(tracker.latencyMicros()));
+    }
+}
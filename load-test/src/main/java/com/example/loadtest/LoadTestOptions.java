@@ -0,0 +1,55 @@
+package com.example.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tham số dòng lệnh dạng --key=value. Các khóa không biết được bỏ qua
+ * để StandInChatServer có thể chuyển tiếp chúng cho Spring (ví dụ --server.port=8084).
+ */
+public record LoadTestOptions(
+        String url,
+        int users,
+        int groups,
+        double ratePerUser,
+        double groupRatio,
+        int durationSeconds,
+        int drainSeconds,
+        int settleMillis,
+        int connectConcurrency,
+        int sendThreads,
+        String report) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                values.getOrDefault("url", "http://localhost:8084/ws"),
+                Integer.parseInt(values.getOrDefault("users", "100")),
+                Integer.parseInt(values.getOrDefault("groups", "10")),
+                Double.parseDouble(values.getOrDefault("rate", "1")),
+                Double.parseDouble(values.getOrDefault("group-ratio", "0.3")),
+                Integer.parseInt(values.getOrDefault("duration-seconds", "60")),
+                Integer.parseInt(values.getOrDefault("drain-seconds", "10")),
+                Integer.parseInt(values.getOrDefault("settle-millis", "2000")),
+                Integer.parseInt(values.getOrDefault("connect-concurrency", "50")),
+                Integer.parseInt(values.getOrDefault("send-threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                values.getOrDefault("report", "load-test-report.json"));
+        if (options.users < 2) {
+            throw new IllegalArgumentException("--users phải >= 2");
+        }
+        if (options.groups < 0 || options.groups > options.users) {
+            throw new IllegalArgumentException("--groups phải nằm trong [0, users]");
+        }
+        if (options.ratePerUser <= 0) {
+            throw new IllegalArgumentException("--rate phải > 0");
+        }
+        return options;
+    }
+}
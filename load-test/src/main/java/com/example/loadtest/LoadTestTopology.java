@@ -0,0 +1,53 @@
+package com.example.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Người dùng và nhóm của một lần chạy tải. Cả StandInChatServer (seed nhóm) và ChatLoadTest
+ * (đăng ký / gửi) tính cùng một topology từ --users và --groups: người dùng i thuộc nhóm i % groups.
+ */
+public final class LoadTestTopology {
+
+    private static final String USER_PREFIX = "lt-user-";
+    private static final String GROUP_PREFIX = "lt-group-";
+
+    private final int users;
+    private final int groups;
+
+    public LoadTestTopology(int users, int groups) {
+        this.users = users;
+        this.groups = groups;
+    }
+
+    public int users() {
+        return users;
+    }
+
+    public int groups() {
+        return groups;
+    }
+
+    public String userId(int index) {
+        return USER_PREFIX + index;
+    }
+
+    public String groupId(int index) {
+        return GROUP_PREFIX + index;
+    }
+
+    /**
+     * Nhóm của người dùng, hoặc -1 nếu chạy không có nhóm
+     */
+    public int groupOf(int userIndex) {
+        return groups == 0 ? -1 : userIndex % groups;
+    }
+
+    public List<String> members(int groupIndex) {
+        List<String> members = new ArrayList<>(users / groups + 1);
+        for (int i = groupIndex; i < users; i += groups) {
+            members.add(userId(i));
+        }
+        return members;
+    }
+}
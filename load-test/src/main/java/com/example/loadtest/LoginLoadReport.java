@@ -0,0 +1,18 @@
+package com.example.loadtest;
+
+/**
+ * Kết quả một lần chạy LoginLoadTest, được ghi ra file JSON như LoadReport
+ */
+public record LoginLoadReport(
+        int concurrency,
+        long tokenLatencyMillis,
+        int maxConnections,
+        long logins,
+        long succeeded,
+        long failed,
+        long tokenRequests,
+        int peakConcurrentTokenRequests,
+        double durationSeconds,
+        double loginsPerSecond,
+        LoadReport.Latency latencyMillis) {
+}
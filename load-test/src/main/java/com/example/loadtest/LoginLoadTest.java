@@ -0,0 +1,151 @@
+package com.example.loadtest;
+
+import com.example.authservice.config.WebClientConfig;
+import com.example.authservice.dto.LoginEventDTO;
+import com.example.authservice.dto.LoginRequestDTO;
+import com.example.authservice.service.AuthService;
+import com.example.authservice.service.UserIdentityIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chạy --concurrency lượt đăng nhập đồng thời (mặc định 2.000), mỗi client một virtual thread như Tomcat của
+ * auth-service, qua AuthService.loginUser với WebClient dùng chung của WebClientConfig, tới TokenEndpointStub
+ * thay cho Keycloak. Email đã có trong UserIdentityIndex nên không gọi admin API; sự kiện đăng nhập đi vào
+ * MockProducer thay cho Kafka. Báo cáo thông lượng, phân vị độ trễ và số request token đồng thời lớn nhất.
+ */
+@Slf4j
+public final class LoginLoadTest {
+
+    private static final String REALM = "social-network";
+    private static final String PASSWORD = "Passw0rd!";
+    private static final int WARMUP_LOGINS = 200;
+
+    private LoginLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoginLoadTestOptions options = LoginLoadTestOptions.parse(args);
+        LoginLoadReport report;
+        try (TokenEndpointStub stub = new TokenEndpointStub(REALM, options.tokenLatencyMillis())) {
+            report = run(options, stub);
+        }
+
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(Path.of(options.report()).toFile(), report);
+        log.info("{} lượt đăng nhập ({} lỗi) với {} client đồng thời: {} lượt/s, độ trễ ms p50={} p99={} p99.9={} max={}, "
+                        + "tối đa {} request token đồng thời",
+                report.logins(), report.failed(), report.concurrency(), Math.round(report.loginsPerSecond()),
+                report.latencyMillis().p50(), report.latencyMillis().p99(), report.latencyMillis().p999(),
+                report.latencyMillis().max(), report.peakConcurrentTokenRequests());
+        log.info("Báo cáo: {}", Path.of(options.report()).toAbsolutePath());
+        System.exit(0);
+    }
+
+    private static LoginLoadReport run(LoginLoadTestOptions options, TokenEndpointStub stub) throws InterruptedException {
+        AuthService authService = authService(options, stub);
+        for (int i = 0; i < WARMUP_LOGINS; i++) {
+            authService.loginUser(new LoginRequestDTO(email(i % options.concurrency()), PASSWORD));
+        }
+        long warmupRequests = stub.requests();
+
+        Histogram latencyMicros = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        LongAdder succeeded = new LongAdder();
+        LongAdder failed = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> clients = new ArrayList<>(options.concurrency());
+        for (int c = 0; c < options.concurrency(); c++) {
+            LoginRequestDTO request = new LoginRequestDTO(email(c), PASSWORD);
+            clients.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < options.loginsPerClient(); i++) {
+                    long began = System.nanoTime();
+                    ResponseEntity<?> response = authService.loginUser(request);
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - began);
+                    latencyMicros.recordValue(Math.min(micros, latencyMicros.getHighestTrackableValue()));
+                    if (response.getStatusCode().is2xxSuccessful()) {
+                        succeeded.increment();
+                    } else {
+                        failed.increment();
+                    }
+                }
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread client : clients) {
+            client.join();
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        long logins = succeeded.sum() + failed.sum();
+        return new LoginLoadReport(
+                options.concurrency(),
+                options.tokenLatencyMillis(),
+                options.maxConnections(),
+                logins,
+                succeeded.sum(),
+                failed.sum(),
+                stub.requests() - warmupRequests,
+                stub.peakInFlight(),
+                seconds,
+                logins / seconds,
+                LoadReport.Latency.of(latencyMicros));
+    }
+
+    private static AuthService authService(LoginLoadTestOptions options, TokenEndpointStub stub) {
+        WebClient keycloakWebClient = new WebClientConfig().keycloakWebClient(WebClient.builder(), stub.serverUrl(),
+                REALM, options.maxConnections(), 2_000, 2_000, 5_000);
+
+        UserIdentityIndex userIdentityIndex = new UserIdentityIndex();
+        for (int c = 0; c < options.concurrency(); c++) {
+            userIdentityIndex.register("kc-" + email(c), email(c), null);
+        }
+
+        // KafkaTemplate đóng producer sau mỗi lần gửi ngoài transaction, nên mỗi lần tạo một MockProducer mới
+        KafkaTemplate<String, LoginEventDTO> loginKafkaTemplate = new KafkaTemplate<>(() ->
+                new MockProducer<>(true, new StringSerializer(), new JsonSerializer<>()));
+
+        // KeycloakService không được gọi vì mọi email đều có trong UserIdentityIndex
+        AuthService authService = new AuthService(null, userIdentityIndex, keycloakWebClient, null,
+                loginKafkaTemplate, null);
+        set(authService, "authServerUrl", stub.serverUrl());
+        set(authService, "realm", REALM);
+        set(authService, "clientId", "auth-service");
+        set(authService, "clientSecret", "load-test");
+        set(authService, "userLoginTopic", "user-login-topic");
+        return authService;
+    }
+
+    private static String email(int client) {
+        return "login-" + client + "@example.com";
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
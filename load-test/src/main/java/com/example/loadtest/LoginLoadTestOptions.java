@@ -0,0 +1,39 @@
+package com.example.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tham số dòng lệnh của LoginLoadTest, dạng --key=value như LoadTestOptions
+ */
+public record LoginLoadTestOptions(
+        int concurrency,
+        int loginsPerClient,
+        long tokenLatencyMillis,
+        int maxConnections,
+        String report) {
+
+    public static LoginLoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        LoginLoadTestOptions options = new LoginLoadTestOptions(
+                Integer.parseInt(values.getOrDefault("concurrency", "2000")),
+                Integer.parseInt(values.getOrDefault("logins-per-client", "5")),
+                Long.parseLong(values.getOrDefault("token-latency-ms", "50")),
+                // Mặc định của keycloak.oidc.max-connections trong WebClientConfig
+                Integer.parseInt(values.getOrDefault("max-connections", "500")),
+                values.getOrDefault("report", "login-load-test-report.json"));
+        if (options.concurrency < 1) {
+            throw new IllegalArgumentException("--concurrency phải >= 1");
+        }
+        if (options.loginsPerClient < 1) {
+            throw new IllegalArgumentException("--logins-per-client phải >= 1");
+        }
+        return options;
+    }
+}
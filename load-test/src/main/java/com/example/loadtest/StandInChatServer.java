@@ -0,0 +1,100 @@
+package com.example.loadtest;
+
+import com.example.chatservice.ChatServiceApplication;
+import com.example.chatservice.model.Conversation;
+import com.example.chatservice.repository.ConversationRepository;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chạy chat-service thật trên một máy với Kafka (KRaft), MongoDB và Redis nhúng,
+ * không cần Eureka, config-server hay Keycloak (client tải kết nối ở chế độ dev bằng header X-User-Id).
+ * Các nhóm của topology được seed thẳng vào Mongo sau khi ứng dụng khởi động.
+ */
+@Slf4j
+public final class StandInChatServer {
+
+    private StandInChatServer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 3);
+        kafka.afterPropertiesSet();
+
+        TransitionWalker.ReachedState<RunningMongodProcess> mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress mongoAddress = mongod.current().getServerAddress();
+
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+
+        // Tham số dòng lệnh có độ ưu tiên cao hơn application.yml của chat-service
+        List<String> springArgs = new ArrayList<>(Arrays.asList(args));
+        springArgs.add("--spring.kafka.bootstrap-servers=" + kafka.getBrokersAsString());
+        springArgs.add("--spring.data.mongodb.uri=mongodb://" + mongoAddress.getHost() + ":"
+                + mongoAddress.getPort() + "/chat_db");
+        springArgs.add("--spring.data.redis.host=localhost");
+        springArgs.add("--spring.data.redis.port=" + redisPort);
+        springArgs.add("--spring.cloud.config.enabled=false");
+        springArgs.add("--spring.cloud.config.import-check.enabled=false");
+        springArgs.add("--eureka.client.enabled=false");
+
+        ConfigurableApplicationContext context =
+                SpringApplication.run(ChatServiceApplication.class, springArgs.toArray(String[]::new));
+
+        seedGroups(context.getBean(ConversationRepository.class),
+                new LoadTestTopology(options.users(), options.groups()));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            context.close();
+            try {
+                redis.stop();
+            } catch (IOException e) {
+                log.warn("Không thể dừng Redis nhúng: {}", e.getMessage());
+            }
+            mongod.close();
+            kafka.destroy();
+        }, "stand-in-shutdown"));
+
+        log.info("chat-service sẵn sàng với {} người dùng / {} nhóm (Kafka {}, Mongo {}, Redis {})",
+                options.users(), options.groups(), kafka.getBrokersAsString(), mongoAddress, redisPort);
+    }
+
+    private static void seedGroups(ConversationRepository conversationRepository, LoadTestTopology topology) {
+        List<Conversation> conversations = new ArrayList<>(topology.groups());
+        for (int g = 0; g < topology.groups(); g++) {
+            List<String> members = topology.members(g);
+            Conversation conversation = new Conversation();
+            conversation.setId(topology.groupId(g));
+            conversation.setName("Load test " + g);
+            conversation.setType("GROUP");
+            conversation.setParticipants(members);
+            conversation.setCreatorId(members.get(0));
+            conversation.onCreate();
+            conversations.add(conversation);
+        }
+        conversationRepository.saveAll(conversations);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
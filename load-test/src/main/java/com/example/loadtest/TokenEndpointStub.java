@@ -0,0 +1,99 @@
+package com.example.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Endpoint token OpenID Connect giả lập của Keycloak cho password grant: chờ latencyMillis rồi trả về
+ * access token dạng JWT (không ký) có "sub" suy ra từ username. Ghi nhận số request đồng thời lớn nhất,
+ * tức số kết nối mà pool của WebClient dùng chung thực sự mở tới Keycloak.
+ */
+final class TokenEndpointStub implements AutoCloseable {
+
+    // AuthService.extractSubjectFromToken giải mã payload bằng Base64.getDecoder() (bảng chữ cái chuẩn)
+    private static final Base64.Encoder BASE64 = Base64.getEncoder().withoutPadding();
+
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+
+    TokenEndpointStub(String realm, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/realms/" + realm + "/protocol/openid-connect/token", this::token);
+        server.start();
+    }
+
+    String serverUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            requests.increment();
+            String username = formValue(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8),
+                    "username");
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            byte[] body = tokenResponse(username).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static String tokenResponse(String username) {
+        String header = BASE64.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = BASE64.encodeToString(("{\"sub\":\"kc-" + username + "\",\"email\":\"" + username + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        String accessToken = header + "." + payload + ".";
+        return "{\"access_token\":\"" + accessToken + "\",\"refresh_token\":\"refresh-" + username + "\","
+                + "\"expires_in\":300,\"refresh_expires_in\":1800,\"token_type\":\"Bearer\",\"scope\":\"openid\"}";
+    }
+
+    private static String formValue(String form, String name) {
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.notificationservice.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
@@ -15,28 +17,64 @@ import java.util.Map;
 @Configuration
 @EnableKafka
 public class KafkaConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    // Khớp với 10 partition của "private-messages"/"group-messages" do chat-service tạo
+    @Value("${notification.kafka.concurrency:10}")
+    private int concurrency;
+
+    @Value("${notification.kafka.max-poll-records:500}")
+    private int maxPollRecords;
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
-        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.GROUP_ID_CONFIG, "notification-group");
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, org.apache.kafka.common.serialization.StringDeserializer.class);
         props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.chatservice.model,com.example.notificationservice.dto");
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.chatservice.model,com.example.chatservice.dto,com.example.notificationservice.dto");
         // Alternatively, trust all packages:
         // props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.TYPE_MAPPINGS,
-                "com.example.chatservice.model.ChatMessage:com.example.notificationservice.dto.ChatMessage");
+                "com.example.chatservice.model.ChatMessage:com.example.notificationservice.dto.ChatMessage,"
+                        + "com.example.chatservice.dto.ConversationMembershipEvent:com.example.notificationservice.dto.ConversationMembershipEvent");
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
+    /**
+     * Listener mặc định nhận cả lô bản ghi của một lần poll
+     */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        return factory;
+    }
+
+    /**
+     * Listener topic thành viên nhóm: luôn đọc từ đầu và không commit offset,
+     * vì mỗi instance dựng lại toàn bộ trạng thái khi khởi động.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> membershipListenerContainerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Phát ListenerContainerIdleEvent khi đã đọc hết topic để bật listener tin nhắn nhóm
+        factory.getContainerProperties().setIdleEventInterval(2000L);
         return factory;
     }
 }
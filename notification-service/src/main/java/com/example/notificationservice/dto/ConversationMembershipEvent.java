@@ -0,0 +1,13 @@
+package com.example.notificationservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ConversationMembershipEvent {
+    private String conversationId;
+    private String name;
+    private String type;
+    private List<String> participants;
+}
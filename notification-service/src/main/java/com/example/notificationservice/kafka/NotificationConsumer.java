@@ -1,44 +1,45 @@
 package com.example.notificationservice.kafka;
 
 import com.example.notificationservice.dto.ChatMessage;
-import com.example.notificationservice.dto.Conversation;
 import com.example.notificationservice.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Listener dạng batch: mỗi lần poll được xử lý trọn trong một pipeline Redis.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationConsumer {
 
+    public static final String GROUP_MESSAGES_LISTENER_ID = "groupMessages";
+
     private final NotificationService notificationService;
 
     @KafkaListener(topics = "private-messages", groupId = "notification-group")
-    public void consumePrivateMessage(ChatMessage message) {
-        log.info("Received private message: {}", message);
-        notificationService.createMessageNotification(message);
+    public void consumePrivateMessages(List<ChatMessage> messages) {
+        log.debug("Received {} private messages", messages.size());
+        notificationService.createMessageNotifications(deserialized(messages));
     }
 
-    @KafkaListener(topics = "group-messages", groupId = "notification-group")
-    public void consumeGroupMessage(ChatMessage message) {
-        log.info("Received group message: {}", message);
-        // Trong trường hợp tin nhắn nhóm, chúng ta cần lấy thông tin participants từ service khác
-        // Ở đây có 2 phương án:
-        // 1. Gọi API từ conversation-service để lấy participants
-        // 2. Hoặc có thể được gửi kèm trong message payload
-
-        // Giả sử thông tin participants đã được gửi kèm trong message
-        Conversation conversation = getConversationDetails(message.getConversationId());
-        notificationService.createGroupMessageNotifications(message, conversation.getParticipants());
+    // Được ConversationMembershipCache bật khi đã nạp xong thành viên nhóm
+    @KafkaListener(id = GROUP_MESSAGES_LISTENER_ID, topics = "group-messages", groupId = "notification-group",
+            autoStartup = "false")
+    public void consumeGroupMessages(List<ChatMessage> messages) {
+        log.debug("Received {} group messages", messages.size());
+        // Thành viên nhóm lấy từ bộ nhớ cục bộ (topic compacted "conversation-membership"),
+        // không gọi chat-service cho từng tin nhắn
+        notificationService.createGroupMessageNotifications(deserialized(messages));
     }
 
-    // Phương thức này có thể gọi REST API đến conversation-service
-    private Conversation getConversationDetails(String conversationId) {
-        // Implement API call to conversation service
-        // Có thể sử dụng RestTemplate hoặc WebClient
-        log.info("Fetching conversation details for ID: {}", conversationId);
-        return new Conversation(); // placeholder
+    // ErrorHandlingDeserializer trả về null cho bản ghi lỗi, bỏ qua thay vì làm hỏng cả lô
+    private static List<ChatMessage> deserialized(List<ChatMessage> messages) {
+        return messages.stream().filter(Objects::nonNull).toList();
     }
-}
\ No newline at end of file
+}
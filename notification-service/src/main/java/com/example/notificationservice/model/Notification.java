@@ -18,4 +18,6 @@ public class Notification implements Serializable {
     private String type;
     private LocalDateTime createdAt;
     private boolean read;
+    // Số tin nhắn đã gộp vào thông báo này (thông báo nhóm gộp theo cuộc trò chuyện)
+    private long count = 1;
 }
\ No newline at end of file
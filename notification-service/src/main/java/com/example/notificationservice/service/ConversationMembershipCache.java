@@ -0,0 +1,106 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.ConversationMembershipEvent;
+import com.example.notificationservice.kafka.NotificationConsumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách thành viên nhóm chat giữ trong bộ nhớ, dựng từ topic compacted "conversation-membership"
+ * do chat-service gửi. Mỗi instance đọc lại topic từ đầu khi khởi động nên không cần gọi chat-service
+ * cho từng tin nhắn nhóm. Không giới hạn kích thước: topic là nguồn duy nhất và chỉ được đọc lại khi
+ * khởi động, nên một nhóm bị loại khỏi bộ nhớ sẽ không bao giờ được nạp lại.
+ * Listener tin nhắn nhóm không tự khởi động: nó chỉ được bật khi topic đã được đọc tới end offset,
+ * để không tin nhắn nhóm nào bị bỏ qua (và commit offset) chỉ vì nhóm chưa kịp nạp.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationMembershipCache implements ConsumerSeekAware {
+
+    public static final String MEMBERSHIP_TOPIC = "conversation-membership";
+    static final String LISTENER_ID = "conversationMembership";
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final Map<String, List<String>> participantsByConversation = new ConcurrentHashMap<>();
+    private volatile boolean caughtUp;
+
+    /**
+     * Trả về thành viên của nhóm, hoặc null nếu nhóm chưa được biết
+     */
+    public List<String> getParticipants(String conversationId) {
+        return participantsByConversation.get(conversationId);
+    }
+
+    // Group id riêng cho mỗi instance: mọi instance đều cần toàn bộ topic, không chia partition cho nhau
+    @KafkaListener(id = LISTENER_ID,
+            topics = MEMBERSHIP_TOPIC,
+            groupId = "notification-membership-${random.uuid}",
+            containerFactory = "membershipListenerContainerFactory")
+    public void onMembershipChanged(ConsumerRecord<String, ConversationMembershipEvent> record) {
+        ConversationMembershipEvent event = record.value();
+        if (event == null || event.getParticipants() == null) {
+            // Tombstone: nhóm đã bị xóa
+            participantsByConversation.remove(record.key());
+        } else {
+            participantsByConversation.put(record.key(), List.copyOf(event.getParticipants()));
+        }
+    }
+
+    /**
+     * Container báo rỗi khi không có bản ghi mới; sự kiện chạy trên thread của consumer nên có thể so
+     * vị trí đọc với end offset. Khi mọi partition đã tới end offset thì bật listener tin nhắn nhóm.
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (caughtUp || !event.getListenerId().startsWith(LISTENER_ID)) {
+            return;
+        }
+        if (reachedEndOffsets(event.getConsumer(), event.getTopicPartitions())) {
+            caughtUp = true;
+            log.info("Conversation membership loaded: {} groups, starting group message listener",
+                    participantsByConversation.size());
+            MessageListenerContainer groupMessages =
+                    listenerRegistry.getListenerContainer(NotificationConsumer.GROUP_MESSAGES_LISTENER_ID);
+            if (groupMessages != null) {
+                groupMessages.start();
+            }
+        }
+    }
+
+    static boolean reachedEndOffsets(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (consumer == null || partitions == null || partitions.isEmpty()) {
+            return false;
+        }
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+        for (TopicPartition partition : partitions) {
+            Long end = endOffsets.get(partition);
+            if (end == null || consumer.position(partition) < end) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Nạp lại trạng thái từ đầu topic compacted mỗi khi khởi động
+        callback.seekToBeginning(assignments.keySet());
+        log.info("Loading conversation membership from {} partitions", assignments.size());
+    }
+}
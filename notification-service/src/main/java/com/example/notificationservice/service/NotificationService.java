@@ -2,109 +2,232 @@ package com.example.notificationservice.service;
 
 import com.example.notificationservice.dto.ChatMessage;
 import com.example.notificationservice.model.Notification;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
+/**
+ * Mỗi người dùng có một ZSET id thông báo (score = createdAt), một HASH id -> payload
+ * và một ZSET các id chưa đọc. Đọc danh sách là đọc theo khoảng trên ZSET của chính người dùng,
+ * không phụ thuộc vào tổng số key trong Redis.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ConversationMembershipCache membershipCache;
 
-    private static final String NOTIFICATION_KEY = "notifications:";
-    private static final String UNREAD_COUNT_KEY = "unread_count:";
+    private static final String NOTIFICATION_INDEX_KEY = "notifications:";
+    private static final String NOTIFICATION_DATA_KEY = "notification_data:";
+    private static final String UNREAD_KEY = "notifications_unread:";
+    private static final String GROUP_NOTIFICATION_PREFIX = "group:";
+    private static final String COUNT_FIELD_SUFFIX = ":count";
     private static final int NOTIFICATION_TTL = 7; // số ngày lưu thông báo
+    private static final int MAX_PAGE_SIZE = 100;
 
-    public void createMessageNotification(ChatMessage message) {
+    private static final RedisScript<Long> ADD_NOTIFICATION_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/add_notification.lua"), Long.class);
+
+    @Value("${notification.max-per-user:200}")
+    private int maxNotificationsPerUser;
+
+    @Value("${notification.fan-out-batch-size:500}")
+    private int fanOutBatchSize;
+
+    /**
+     * Tạo thông báo cho một lô tin nhắn riêng (một lần poll Kafka) trong một pipeline Redis
+     */
+    public void createMessageNotifications(List<ChatMessage> messages) {
+        List<Notification> notifications = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            notifications.add(buildNotification(message, message.getReceiverId(), "MESSAGE"));
+        }
+        saveAll(notifications, false);
+
+        log.debug("Created {} message notifications", notifications.size());
+    }
+
+    /**
+     * Fan-out thông báo nhóm: mỗi thành viên có đúng một thông báo cho mỗi nhóm
+     * (id "group:" + conversationId). Khi thông báo đó còn chưa đọc, tin nhắn mới chỉ tăng bộ đếm
+     * thay vì tạo mục mới. Cả lô tin nhắn được ghi chung một pipeline.
+     */
+    public void createGroupMessageNotifications(List<ChatMessage> messages) {
+        List<Notification> notifications = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            List<String> participants = membershipCache.getParticipants(message.getConversationId());
+            if (participants == null) {
+                log.warn("Unknown group conversation {}, skipping notifications", message.getConversationId());
+                continue;
+            }
+            for (String userId : participants) {
+                if (!userId.equals(message.getSenderId())) {
+                    Notification notification = buildNotification(message, userId, "GROUP_MESSAGE");
+                    notification.setId(GROUP_NOTIFICATION_PREFIX + message.getConversationId());
+                    notifications.add(notification);
+                }
+            }
+        }
+        saveAll(notifications, true);
+
+        log.debug("Created {} group notifications for {} messages", notifications.size(), messages.size());
+    }
+
+    private Notification buildNotification(ChatMessage message, String userId, String type) {
         Notification notification = new Notification();
         notification.setId(UUID.randomUUID().toString());
-        notification.setUserId(message.getReceiverId());
+        notification.setUserId(userId);
         notification.setSenderId(message.getSenderId());
         notification.setMessageId(message.getId());
         notification.setConversationId(message.getConversationId());
         notification.setContent(message.getContent());
-        notification.setType("MESSAGE");
+        notification.setType(type);
         notification.setCreatedAt(LocalDateTime.now());
         notification.setRead(false);
+        return notification;
+    }
 
-        // Lưu vào Redis với thời gian hết hạn
-        String key = NOTIFICATION_KEY + message.getReceiverId() + ":" + notification.getId();
-        redisTemplate.opsForValue().set(key, notification);
-        redisTemplate.expire(key, NOTIFICATION_TTL, TimeUnit.DAYS);
-
-        // Tăng số lượng thông báo chưa đọc
-        redisTemplate.opsForValue().increment(UNREAD_COUNT_KEY + message.getReceiverId());
+    /**
+     * Ghi thông báo, cập nhật tập chưa đọc và cắt bớt thông báo cũ bằng add_notification.lua.
+     * Các lệnh EVALSHA được gửi theo lô (notification.fan-out-batch-size) trong một pipeline.
+     */
+    private void saveAll(List<Notification> notifications, boolean collapse) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        byte[] script = ADD_NOTIFICATION_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        String sha = ADD_NOTIFICATION_SCRIPT.getSha1();
+        for (int from = 0; from < notifications.size(); from += fanOutBatchSize) {
+            List<Notification> batch = notifications.subList(from, Math.min(from + fanOutBatchSize, notifications.size()));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                // SCRIPT LOAD đi đầu pipeline để các EVALSHA phía sau không gặp NOSCRIPT sau khi Redis khởi động lại
+                connection.scriptingCommands().scriptLoad(script);
+                for (Notification notification : batch) {
+                    connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 3,
+                            toScriptArgs(notification, collapse));
+                }
+                return null;
+            });
+        }
+    }
 
-        log.info("Created notification for user: {}", message.getReceiverId());
+    private Object[] scriptArgs(Notification notification, boolean collapse) {
+        long createdAt = toEpochMillis(notification.getCreatedAt());
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(NOTIFICATION_TTL);
+        return new Object[]{
+                notification.getId(),
+                String.valueOf(createdAt),
+                toJson(notification),
+                String.valueOf(maxNotificationsPerUser),
+                String.valueOf(expiredBefore),
+                String.valueOf(TimeUnit.DAYS.toSeconds(NOTIFICATION_TTL)),
+                collapse ? "1" : "0"
+        };
     }
 
-    public void createGroupMessageNotifications(ChatMessage message, List<String> participants) {
-        participants.stream()
-                .filter(userId -> !userId.equals(message.getSenderId()))
-                .forEach(userId -> {
-                    Notification notification = new Notification();
-                    notification.setId(UUID.randomUUID().toString());
-                    notification.setUserId(userId);
-                    notification.setSenderId(message.getSenderId());
-                    notification.setMessageId(message.getId());
-                    notification.setConversationId(message.getConversationId());
-                    notification.setContent(message.getContent());
-                    notification.setType("GROUP_MESSAGE");
-                    notification.setCreatedAt(LocalDateTime.now());
-                    notification.setRead(false);
-
-                    String key = NOTIFICATION_KEY + userId + ":" + notification.getId();
-                    redisTemplate.opsForValue().set(key, notification);
-                    redisTemplate.expire(key, NOTIFICATION_TTL, TimeUnit.DAYS);
-
-                    redisTemplate.opsForValue().increment(UNREAD_COUNT_KEY + userId);
-
-                    log.info("Created group notification for user: {}", userId);
-                });
+    /**
+     * Khóa và tham số của script dưới dạng byte cho kết nối Redis thô (dùng trong pipeline)
+     */
+    private byte[][] toScriptArgs(Notification notification, boolean collapse) {
+        String userId = notification.getUserId();
+        Object[] args = scriptArgs(notification, collapse);
+        byte[][] keysAndArgs = new byte[3 + args.length][];
+        keysAndArgs[0] = (NOTIFICATION_INDEX_KEY + userId).getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[1] = (NOTIFICATION_DATA_KEY + userId).getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[2] = (UNREAD_KEY + userId).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < args.length; i++) {
+            keysAndArgs[3 + i] = args[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return keysAndArgs;
     }
 
-    public List<Notification> getUserNotifications(String userId) {
-        String pattern = NOTIFICATION_KEY + userId + ":*";
-        return redisTemplate.keys(pattern).stream()
-                .map(key -> (Notification) redisTemplate.opsForValue().get(key))
-                .sorted((n1, n2) -> n2.getCreatedAt().compareTo(n1.getCreatedAt()))
-                .collect(Collectors.toList());
+    public List<Notification> getUserNotifications(String userId, int page, int size) {
+        // size <= 0 sẽ cho khoảng (start, start - 1), tức -1 = toàn bộ danh sách với ZREVRANGE
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        long start = (long) page * size;
+        Set<String> ids = redisTemplate.opsForZSet()
+                .reverseRange(NOTIFICATION_INDEX_KEY + userId, start, start + size - 1);
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Payload và bộ đếm gộp "<id>:count" nằm cạnh nhau trong HASH nên lấy bằng một HMGET
+        List<Object> fields = new ArrayList<>(ids.size() * 2);
+        for (String id : ids) {
+            fields.add(id);
+            fields.add(id + COUNT_FIELD_SUFFIX);
+        }
+        List<Object> values = redisTemplate.opsForHash().multiGet(NOTIFICATION_DATA_KEY + userId, fields);
+        List<Double> unreadScores = redisTemplate.opsForZSet().score(UNREAD_KEY + userId, ids.toArray());
+
+        List<Notification> notifications = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Object payload = values.get(2 * i);
+            if (payload == null) {
+                continue;
+            }
+            Notification notification = fromJson(payload.toString());
+            Object count = values.get(2 * i + 1);
+            if (count != null) {
+                notification.setCount(Long.parseLong(count.toString()));
+            }
+            notification.setRead(unreadScores == null || unreadScores.get(i) == null);
+            notifications.add(notification);
+        }
+        return notifications;
     }
 
     public long getUnreadCount(String userId) {
-        Object count = redisTemplate.opsForValue().get(UNREAD_COUNT_KEY + userId);
-        return count != null ? Long.parseLong(count.toString()) : 0;
+        Long count = redisTemplate.opsForZSet().zCard(UNREAD_KEY + userId);
+        return count != null ? count : 0;
     }
 
     public void markAsRead(String userId, String notificationId) {
-        String key = NOTIFICATION_KEY + userId + ":" + notificationId;
-        Notification notification = (Notification) redisTemplate.opsForValue().get(key);
+        redisTemplate.opsForZSet().remove(UNREAD_KEY + userId, notificationId);
+    }
 
-        if (notification != null && !notification.isRead()) {
-            notification.setRead(true);
-            redisTemplate.opsForValue().set(key, notification);
-            redisTemplate.opsForValue().decrement(UNREAD_COUNT_KEY + userId);
+    public void markAllAsRead(String userId) {
+        redisTemplate.delete(UNREAD_KEY + userId);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private String toJson(Notification notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể serialize thông báo " + notification.getId(), e);
         }
     }
 
-    public void markAllAsRead(String userId) {
-        String pattern = NOTIFICATION_KEY + userId + ":*";
-        redisTemplate.keys(pattern).forEach(key -> {
-            Notification notification = (Notification) redisTemplate.opsForValue().get(key);
-            if (notification != null && !notification.isRead()) {
-                notification.setRead(true);
-                redisTemplate.opsForValue().set(key, notification);
-            }
-        });
-        redisTemplate.delete(UNREAD_COUNT_KEY + userId);
+    private Notification fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, Notification.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể đọc thông báo từ Redis", e);
+        }
     }
-}
\ No newline at end of file
+}
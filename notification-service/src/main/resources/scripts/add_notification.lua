@@ -0,0 +1,40 @@
+-- Thêm một thông báo cho người dùng và cắt bớt các thông báo cũ, chạy nguyên tử trên Redis.
+-- KEYS[1] = ZSET id thông báo (score = createdAt), KEYS[2] = HASH id -> payload, KEYS[3] = ZSET id chưa đọc
+-- ARGV[1] = id, ARGV[2] = createdAt (epoch ms), ARGV[3] = payload JSON,
+-- ARGV[4] = số thông báo tối đa, ARGV[5] = mốc hết hạn (epoch ms), ARGV[6] = TTL của key (giây),
+-- ARGV[7] = '1' nếu gộp: thông báo cùng id còn chưa đọc thì tăng bộ đếm "<id>:count" thay vì tạo mục mới
+local id = ARGV[1]
+if ARGV[7] == '1' then
+    if redis.call('ZSCORE', KEYS[3], id) then
+        redis.call('HINCRBY', KEYS[2], id .. ':count', 1)
+    else
+        redis.call('HSET', KEYS[2], id .. ':count', 1)
+    end
+end
+redis.call('ZADD', KEYS[1], ARGV[2], id)
+redis.call('HSET', KEYS[2], id, ARGV[3])
+redis.call('ZADD', KEYS[3], ARGV[2], id)
+
+local function drop(ids)
+    if #ids > 0 then
+        local fields = {}
+        for _, dropped in ipairs(ids) do
+            table.insert(fields, dropped)
+            table.insert(fields, dropped .. ':count')
+        end
+        redis.call('ZREM', KEYS[1], unpack(ids))
+        redis.call('HDEL', KEYS[2], unpack(fields))
+        redis.call('ZREM', KEYS[3], unpack(ids))
+    end
+end
+
+drop(redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[5]))
+local overflow = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[4])
+if overflow > 0 then
+    drop(redis.call('ZRANGE', KEYS[1], 0, overflow - 1))
+end
+
+for i = 1, 3 do
+    redis.call('EXPIRE', KEYS[i], ARGV[6])
+end
+return redis.call('ZCARD', KEYS[3])
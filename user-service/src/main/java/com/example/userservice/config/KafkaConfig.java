@@ -4,6 +4,7 @@ import com.example.userservice.dto.EmailVerificationRequestDTO;
 import com.example.userservice.dto.EmailVerificationResponseDTO;
 import com.example.userservice.dto.LoginEventDTO;
 import com.example.userservice.dto.UserEventDTO;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -13,6 +14,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
@@ -28,6 +30,19 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.topic.user-identity}")
+    private String userIdentityTopic;
+
+    // Compacted: chỉ giữ bản định danh mới nhất của mỗi user để consumer dựng lại chỉ mục từ đầu topic
+    @Bean
+    public NewTopic userIdentityTopic() {
+        return TopicBuilder.name(userIdentityTopic)
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
     @Bean
     public ConsumerFactory<String, UserEventDTO> userEventConsumerFactory() {
         Map<String, Object> props = new HashMap<>();
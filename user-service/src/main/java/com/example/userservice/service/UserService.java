@@ -6,6 +6,8 @@ import com.example.userservice.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -32,6 +34,12 @@ public class UserService {
     @Value("${kafka.topic.email-verification-response}")
     private String emailVerificationResponseTopic;
 
+    @Value("${kafka.topic.user-identity}")
+    private String userIdentityTopic;
+
+    @Value("${user.identity.republish-on-startup:false}")
+    private boolean republishIdentityOnStartup;
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
 
@@ -68,6 +76,7 @@ public class UserService {
                     .build();
 
             userRepository.save(newUser);
+            publishUserIdentity(newUser);
             log.info("User được tạo thành công: {}", newUser);
         } catch (Exception e) {
             log.error("Lỗi khi xử lý message tạo user: {}", e.getMessage(), e);
@@ -157,9 +166,41 @@ public class UserService {
                 user.getPhoneNumber()
         );
         userUpdateDTOKafkaTemplate.send("user-update-topic", user.getKeycloakId() ,userEventDTO);
+        publishUserIdentity(user);
         return userUpdateDTO;
     }
 
+    /**
+     * Gửi lại định danh của mọi user lên topic compacted, dùng một lần để nạp các user có từ trước
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void republishUserIdentities() {
+        if (!republishIdentityOnStartup) {
+            return;
+        }
+        userRepository.findAll().forEach(this::publishUserIdentity);
+    }
+
+    /**
+     * Gửi email/số điện thoại hiện tại của user lên topic compacted (key = keycloakId),
+     * auth-service dựng chỉ mục kiểm tra trùng lặp cục bộ từ topic này
+     */
+    private void publishUserIdentity(User user) {
+        UserEventDTO identity = new UserEventDTO(
+                user.getKeycloakId(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getPhoneNumber()
+        );
+        userUpdateDTOKafkaTemplate.send(userIdentityTopic, user.getKeycloakId(), identity)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Không thể gửi thông tin định danh của user {}: {}", user.getKeycloakId(), ex.getMessage());
+                    }
+                });
+    }
+
     @KafkaListener(topics = "${kafka.topic.email-verification-request}",
             groupId = "user-service",
             containerFactory = "emailVerificationKafkaListenerContainerFactory")